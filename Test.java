@@ -13,7 +13,12 @@ public class Test {
 			NativeBarcodeReader barcodeReader = new NativeBarcodeReader();
 			System.out.println("Version number: " + barcodeReader.getVersion());
 			barcodeReader.setLicense("DLS2eyJoYW5kc2hha2VDb2RlIjoiMjAwMDAxLTE2NDk4Mjk3OTI2MzUiLCJvcmdhbml6YXRpb25JRCI6IjIwMDAwMSIsInNlc3Npb25QYXNzd29yZCI6IndTcGR6Vm05WDJrcEQ5YUoifQ==");
-			barcodeReader.decodeFile(fileName);
+			BarcodeResult[] results = barcodeReader.decodeFile(fileName);
+			for (int index = 0; index < results.length; index++) {
+				System.out.println("Barcode " + (index + 1) + ":");
+				System.out.println("    Type: " + results[index].getFormat());
+				System.out.println("    Text: " + results[index].getText());
+			}
 
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
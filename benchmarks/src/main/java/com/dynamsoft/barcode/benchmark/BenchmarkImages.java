@@ -0,0 +1,89 @@
+package com.dynamsoft.barcode.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import com.dynamsoft.barcode.BarcodeReaderException;
+import com.dynamsoft.barcode.NativeBarcodeReader;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+/**
+ * Synthetic inputs shared by the benchmarks: grayscale images with a grid of QR codes, so image size and
+ * barcode count can be varied independently.
+ */
+final class BenchmarkImages {
+
+	// The trial key used by Test.java; override with -Ddbr.license=...
+	private static final String TRIAL_LICENSE = "DLS2eyJoYW5kc2hha2VDb2RlIjoiMjAwMDAxLTE2NDk4Mjk3OTI2MzUiLCJvcmdhbml6YXRpb25JRCI6IjIwMDAwMSIsInNlc3Npb25QYXNzd29yZCI6IndTcGR6Vm05WDJrcEQ5YUoifQ==";
+
+	private BenchmarkImages() {
+	}
+
+	static void initLicense() throws BarcodeReaderException {
+		NativeBarcodeReader.initLicense(System.getProperty("dbr.license", TRIAL_LICENSE));
+	}
+
+	/**
+	 * Renders a 4:3 grayscale image {@code width} pixels wide with {@code barcodeCount} QR codes laid out
+	 * in a grid.
+	 */
+	static BufferedImage render(int width, int barcodeCount) throws WriterException {
+		int height = width * 3 / 4;
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		Arrays.fill(pixels, (byte) 0xff);
+		if (barcodeCount == 0) {
+			return image;
+		}
+
+		int columns = (int) Math.ceil(Math.sqrt(barcodeCount));
+		int rows = (barcodeCount + columns - 1) / columns;
+		int cell = Math.min(width / columns, height / rows);
+		int size = cell * 4 / 5;
+		QRCodeWriter writer = new QRCodeWriter();
+		for (int i = 0; i < barcodeCount; i++) {
+			BitMatrix matrix = writer.encode("benchmark-" + i, BarcodeFormat.QR_CODE, size, size);
+			int left = (i % columns) * cell + (cell - size) / 2;
+			int top = (i / columns) * cell + (cell - size) / 2;
+			for (int y = 0; y < matrix.getHeight(); y++) {
+				for (int x = 0; x < matrix.getWidth(); x++) {
+					if (matrix.get(x, y)) {
+						pixels[(top + y) * width + left + x] = 0;
+					}
+				}
+			}
+		}
+		return image;
+	}
+
+	static byte[] png(BufferedImage image) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Copies the raw 8-bit pixels of a grayscale image into a direct buffer, one byte per pixel.
+	 */
+	static ByteBuffer grayPixels(BufferedImage image) {
+		byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(pixels.length);
+		buffer.put(pixels).flip();
+		return buffer;
+	}
+
+	static ByteBuffer direct(byte[] data) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data).flip();
+		return buffer;
+	}
+}
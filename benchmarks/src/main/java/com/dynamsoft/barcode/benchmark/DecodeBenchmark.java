@@ -0,0 +1,93 @@
+package com.dynamsoft.barcode.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dynamsoft.barcode.BarcodeResult;
+import com.dynamsoft.barcode.EnumImagePixelFormat;
+import com.dynamsoft.barcode.NativeBarcodeReader;
+
+/**
+ * Compares the decode entry points on the same image: from a file, from encoded bytes on the heap or in
+ * a direct buffer, and from raw grayscale pixels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+
+	/** Image width in pixels; images are 4:3. */
+	@Param({ "640", "1920", "4000" })
+	public int imageSize;
+
+	@Param({ "1", "8", "32" })
+	public int barcodeCount;
+
+	private NativeBarcodeReader reader;
+	private File file;
+	private byte[] encoded;
+	private ByteBuffer encodedDirect;
+	private ByteBuffer pixels;
+	private int width;
+	private int height;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkImages.initLicense();
+		reader = new NativeBarcodeReader();
+
+		BufferedImage image = BenchmarkImages.render(imageSize, barcodeCount);
+		width = image.getWidth();
+		height = image.getHeight();
+		encoded = BenchmarkImages.png(image);
+		encodedDirect = BenchmarkImages.direct(encoded);
+		pixels = BenchmarkImages.grayPixels(image);
+		file = File.createTempFile("dbr-benchmark", ".png");
+		Files.write(file.toPath(), encoded);
+	}
+
+	@TearDown
+	public void tearDown() {
+		reader.close();
+		file.delete();
+	}
+
+	@Benchmark
+	public BarcodeResult[] decodeFile() throws Exception {
+		return reader.decodeFile(file.getPath());
+	}
+
+	@Benchmark
+	public BarcodeResult[] decodeFileInMemory() throws Exception {
+		return reader.decodeFileInMemory(encoded);
+	}
+
+	@Benchmark
+	public BarcodeResult[] decodeFileInMemoryDirect() throws Exception {
+		return reader.decodeFileInMemory(encodedDirect);
+	}
+
+	@Benchmark
+	public BarcodeResult[] decodeBuffer() throws Exception {
+		return reader.decodeBuffer(pixels, width, height, width, EnumImagePixelFormat.IPF_GRAYSCALED);
+	}
+}
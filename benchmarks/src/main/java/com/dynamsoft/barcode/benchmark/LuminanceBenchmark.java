@@ -0,0 +1,88 @@
+package com.dynamsoft.barcode.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dynamsoft.barcode.BarcodeResult;
+import com.dynamsoft.barcode.EnumImagePixelFormat;
+import com.dynamsoft.barcode.LuminanceConverter;
+import com.dynamsoft.barcode.NativeBarcodeReader;
+
+/**
+ * Compares handing DBR a BGR frame against converting it to grayscale first with
+ * {@link LuminanceConverter}, and measures the conversion on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LuminanceBenchmark {
+
+	/** Image width in pixels; images are 4:3. */
+	@Param({ "1920", "3840" })
+	public int imageSize;
+
+	private NativeBarcodeReader reader;
+	private byte[] bgr;
+	private ByteBuffer bgrDirect;
+	private ByteBuffer gray;
+	private int width;
+	private int height;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkImages.initLicense();
+		reader = new NativeBarcodeReader();
+
+		BufferedImage image = BenchmarkImages.render(imageSize, 8);
+		width = image.getWidth();
+		height = image.getHeight();
+		BufferedImage colour = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D graphics = colour.createGraphics();
+		graphics.drawImage(image, 0, 0, null);
+		graphics.dispose();
+		bgr = ((DataBufferByte) colour.getRaster().getDataBuffer()).getData();
+		bgrDirect = BenchmarkImages.direct(bgr);
+		gray = LuminanceConverter.allocate(width, height);
+	}
+
+	@TearDown
+	public void tearDown() {
+		reader.close();
+	}
+
+	@Benchmark
+	public ByteBuffer convert() {
+		LuminanceConverter.toGray(bgr, 0, width * 3, EnumImagePixelFormat.IPF_RGB_888, width, height, gray, width);
+		return gray;
+	}
+
+	@Benchmark
+	public BarcodeResult[] decodeBgr() throws Exception {
+		return reader.decodeBuffer(bgrDirect, width, height, width * 3, EnumImagePixelFormat.IPF_RGB_888);
+	}
+
+	@Benchmark
+	public BarcodeResult[] convertAndDecodeGray() throws Exception {
+		LuminanceConverter.toGray(bgr, 0, width * 3, EnumImagePixelFormat.IPF_RGB_888, width, height, gray, width);
+		return reader.decodeBuffer(gray, width, height, width, EnumImagePixelFormat.IPF_GRAYSCALED);
+	}
+}
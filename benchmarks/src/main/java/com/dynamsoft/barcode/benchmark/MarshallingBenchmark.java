@@ -0,0 +1,95 @@
+package com.dynamsoft.barcode.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dynamsoft.barcode.BarcodeResult;
+import com.dynamsoft.barcode.BatchDecodeResult;
+import com.dynamsoft.barcode.NativeBarcodeReader;
+
+/**
+ * Measures how the cost of turning native results into Java objects grows with the number of barcodes.
+ * The image is kept small so that marshalling is a visible share of each decode; compare
+ * {@code gc.alloc.rate.norm} across barcode counts for the per-result allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarshallingBenchmark {
+
+	private static final int BATCH_SIZE = 8;
+
+	@Param({ "0", "1", "16", "64" })
+	public int barcodeCount;
+
+	private NativeBarcodeReader reader;
+	private ByteBuffer encoded;
+	private ByteBuffer[] batch;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkImages.initLicense();
+		reader = new NativeBarcodeReader();
+
+		BufferedImage image = BenchmarkImages.render(1024, barcodeCount);
+		byte[] png = BenchmarkImages.png(image);
+		encoded = BenchmarkImages.direct(png);
+		batch = new ByteBuffer[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			batch[i] = BenchmarkImages.direct(png);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		reader.close();
+	}
+
+	@Benchmark
+	public BarcodeResult[] decode() throws Exception {
+		return reader.decodeFileInMemory(encoded);
+	}
+
+	/**
+	 * Decodes and reads every field, including the defensive copies made by the getters.
+	 */
+	@Benchmark
+	public void decodeAndRead(Blackhole blackhole) throws Exception {
+		for (BarcodeResult result : reader.decodeFileInMemory(encoded)) {
+			blackhole.consume(result.getText());
+			blackhole.consume(result.getFormat());
+			blackhole.consume(result.getBytes());
+			blackhole.consume(result.getPoints());
+		}
+	}
+
+	@Benchmark
+	public void decodeEach(Blackhole blackhole) throws Exception {
+		for (ByteBuffer image : batch) {
+			blackhole.consume(reader.decodeFileInMemory(image));
+		}
+	}
+
+	@Benchmark
+	public BatchDecodeResult decodeBatch() throws Exception {
+		return reader.decodeBatch(batch);
+	}
+}
@@ -0,0 +1,72 @@
+package com.dynamsoft.barcode.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dynamsoft.barcode.NativeLoader;
+
+/**
+ * Measures {@link NativeLoader#load()} in the three situations a process can meet it in.
+ *
+ * {@link #firstStart} and {@link #laterStart} time the single load of a fresh JVM, one fork per sample:
+ * the first against an empty extraction directory, the second against the directory the warm-up fork
+ * left behind. {@link #repeatedCall} times further calls in a process that has already loaded the
+ * libraries, which only read the manifest and check the extraction stamps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NativeLoaderBenchmark {
+
+	/**
+	 * Points {@code java.io.tmpdir}, and with it the extraction directory, at a new empty directory.
+	 */
+	@State(Scope.Benchmark)
+	public static class EmptyDirectory {
+
+		@Setup
+		public void setUp() throws IOException {
+			File dir = Files.createTempDirectory("dbr-loader-bench").toFile();
+			dir.deleteOnExit();
+			System.setProperty("java.io.tmpdir", dir.getAbsolutePath());
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	@Fork(10)
+	public boolean firstStart(EmptyDirectory dir) throws Exception {
+		return NativeLoader.load();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	@Fork(value = 10, warmups = 1)
+	public boolean laterStart() throws Exception {
+		return NativeLoader.load();
+	}
+
+	@Benchmark
+	public boolean repeatedCall() throws Exception {
+		return NativeLoader.load();
+	}
+}
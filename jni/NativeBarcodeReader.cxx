@@ -1,11 +1,444 @@
 #include "NativeBarcodeReader.h"
 #include "DynamsoftBarcodeReader.h"
 
+#include <atomic>
+#include <cstdlib>
+#include <chrono>
+#include <vector>
+
+// JNI classes and method IDs cached once in JNI_OnLoad
+static JavaVM *g_vm = NULL;
+static jclass g_resultClass = NULL;
+static jmethodID g_resultInit = NULL;
+static jclass g_exceptionClass = NULL;
+static jmethodID g_exceptionInit = NULL;
+static jclass g_stringClass = NULL;
+static jclass g_batchClass = NULL;
+static jmethodID g_batchInit = NULL;
+static jclass g_listenerClass = NULL;
+static jmethodID g_listenerOnResult = NULL;
+static jmethodID g_listenerOnError = NULL;
+
+// Native resource accounting reported by nativeGetMemoryStats
+static std::atomic<long long> g_liveInstances(0);
+static std::atomic<long long> g_resultArrays(0);
+static std::atomic<long long> g_bytesHeld(0);
+
+// Phases of the last decode on this thread, reported by nativeGetLastDecodeTiming
+struct DecodeTiming
+{
+	jlong totalNanos;
+	jlong decodeNanos;
+	jlong collectNanos;
+};
+static thread_local DecodeTiming t_lastTiming;
+
+// Set by nativeSetDecodeTiming around the decodes of readers with diagnostics on; the timers are idle otherwise
+static thread_local bool t_timingEnabled = false;
+
+static jlong nanoTime()
+{
+	return (jlong)std::chrono::duration_cast<std::chrono::nanoseconds>(std::chrono::steady_clock::now().time_since_epoch()).count();
+}
+
+// Adds the time spent in its scope to one phase of t_lastTiming
+class PhaseTimer
+{
+public:
+	explicit PhaseTimer(jlong &nanos) : nanos_(nanos), start_(t_timingEnabled ? nanoTime() : 0) {}
+	~PhaseTimer()
+	{
+		if (t_timingEnabled)
+			nanos_ += nanoTime() - start_;
+	}
+
+private:
+	jlong &nanos_;
+	jlong start_;
+};
+
+// Times a whole decode native, clearing the phases left over from the previous one
+class DecodeTimer
+{
+public:
+	DecodeTimer() : start_(0)
+	{
+		if (t_timingEnabled)
+		{
+			t_lastTiming = DecodeTiming();
+			start_ = nanoTime();
+		}
+	}
+	~DecodeTimer()
+	{
+		if (t_timingEnabled)
+			t_lastTiming.totalNanos = nanoTime() - start_;
+	}
+
+private:
+	jlong start_;
+};
+
+// State shared with the DBR frame-decoding thread through the callbacks' pUser argument
+struct FrameContext
+{
+	jobject listener;
+	int maxQueueLength;
+	bool uniqueBarcodes;
+	long long queueBytes;
+};
+
+// Detaches a DBR worker thread from the JVM when the thread exits
+struct ThreadDetacher
+{
+	bool attached;
+	ThreadDetacher() : attached(false) {}
+	~ThreadDetacher()
+	{
+		if (attached && g_vm)
+			g_vm->DetachCurrentThread();
+	}
+};
+static thread_local ThreadDetacher t_detacher;
+
+// Holds the UTF-8 chars of an optional Java string, releasing them when it goes out of scope
+class JStringChars
+{
+public:
+	JStringChars(JNIEnv *env, jstring str) : env_(env), str_(str), chars_(str ? env->GetStringUTFChars(str, NULL) : NULL) {}
+	~JStringChars()
+	{
+		if (chars_)
+			env_->ReleaseStringUTFChars(str_, chars_);
+	}
+	const char *get() const { return chars_ ? chars_ : ""; }
+
+private:
+	JNIEnv *env_;
+	jstring str_;
+	const char *chars_;
+};
+
+static jclass findGlobalClass(JNIEnv *env, const char *name)
+{
+	jclass local = env->FindClass(name);
+	if (!local)
+		return NULL;
+	jclass global = (jclass)env->NewGlobalRef(local);
+	env->DeleteLocalRef(local);
+	return global;
+}
+
+static void throwBarcodeReaderException(JNIEnv *env, int errorCode, const char *pszMessage = NULL)
+{
+	jstring message = env->NewStringUTF(pszMessage && pszMessage[0] ? pszMessage : DBR_GetErrorString(errorCode));
+	jobject exception = env->NewObject(g_exceptionClass, g_exceptionInit, (jint)errorCode, message);
+	if (exception)
+	{
+		env->Throw((jthrowable)exception);
+		env->DeleteLocalRef(exception);
+	}
+	env->DeleteLocalRef(message);
+}
+
+static long long resultPayloadBytes(TextResultArray *paryResult)
+{
+	long long bytes = 0;
+	for (int index = 0; index < paryResult->resultsCount; index++)
+		bytes += paryResult->results[index]->barcodeBytesLength;
+	return bytes;
+}
+
+static void trackResults(TextResultArray *paryResult)
+{
+	if (paryResult)
+	{
+		g_resultArrays++;
+		g_bytesHeld += resultPayloadBytes(paryResult);
+	}
+}
+
+static void freeResults(TextResultArray **paryResult)
+{
+	if (*paryResult)
+	{
+		g_resultArrays--;
+		g_bytesHeld -= resultPayloadBytes(*paryResult);
+		DBR_FreeTextResults(paryResult);
+	}
+}
+
+// Counts the images of an intermediate result array; other result kinds are small next to them
+static long long intermediatePayloadBytes(IntermediateResultArray *pResults)
+{
+	long long bytes = 0;
+	for (int index = 0; index < pResults->resultsCount; index++)
+	{
+		IntermediateResult *pResult = pResults->results[index];
+		if (pResult->dataType != IMRDT_IMAGE)
+			continue;
+		for (int item = 0; item < pResult->resultsCount; item++)
+		{
+			const ImageData *pImage = (const ImageData *)pResult->results[item];
+			if (pImage)
+				bytes += pImage->bytesLength;
+		}
+	}
+	return bytes;
+}
+
+static void trackIntermediateResults(IntermediateResultArray *pResults)
+{
+	if (pResults)
+	{
+		g_resultArrays++;
+		g_bytesHeld += intermediatePayloadBytes(pResults);
+	}
+}
+
+static void freeIntermediateResults(IntermediateResultArray **pResults)
+{
+	if (*pResults)
+	{
+		g_resultArrays--;
+		g_bytesHeld -= intermediatePayloadBytes(*pResults);
+		DBR_FreeIntermediateResults(pResults);
+	}
+}
+
+static jobject createBarcodeResult(JNIEnv *env, TextResult *result)
+{
+	const char *format = result->barcodeFormat != 0 ? result->barcodeFormatString : result->barcodeFormatString_2;
+	jstring text = env->NewStringUTF(result->barcodeText ? result->barcodeText : "");
+	jstring formatString = env->NewStringUTF(format ? format : "");
+	jbyteArray bytes = env->NewByteArray(result->barcodeBytesLength);
+	if (result->barcodeBytesLength > 0)
+	{
+		env->SetByteArrayRegion(bytes, 0, result->barcodeBytesLength, (const jbyte *)result->barcodeBytes);
+	}
+
+	LocalizationResult empty = {};
+	LocalizationResult *loc = result->localizationResult ? result->localizationResult : &empty;
+	jobject object = env->NewObject(g_resultClass, g_resultInit, text, bytes, formatString,
+									loc->x1, loc->y1, loc->x2, loc->y2, loc->x3, loc->y3, loc->x4, loc->y4);
+
+	env->DeleteLocalRef(text);
+	env->DeleteLocalRef(formatString);
+	env->DeleteLocalRef(bytes);
+	return object;
+}
+
+static jobjectArray createResultArray(JNIEnv *env, TextResultArray *paryResult)
+{
+	int count = paryResult ? paryResult->resultsCount : 0;
+	jobjectArray results = env->NewObjectArray(count, g_resultClass, NULL);
+	for (int index = 0; results && index < count; index++)
+	{
+		jobject result = createBarcodeResult(env, paryResult->results[index]);
+		if (!result)
+			break;
+		env->SetObjectArrayElement(results, index, result);
+		env->DeleteLocalRef(result);
+	}
+	return results;
+}
+
+// Converts the results of the last decode into a BarcodeResult[], or throws if ret is an error code
+static jobjectArray collectResults(JNIEnv *env, void *hBarcode, int ret)
+{
+	PhaseTimer collectTimer(t_lastTiming.collectNanos);
+	if (ret != DBR_OK)
+	{
+		throwBarcodeReaderException(env, ret);
+		return NULL;
+	}
+
+	TextResultArray *paryResult = NULL;
+	DBR_GetAllTextResults(hBarcode, &paryResult);
+	trackResults(paryResult);
+
+	jobjectArray results = createResultArray(env, paryResult);
+
+	// Release memory
+	freeResults(&paryResult);
+	return results;
+}
+
+// Builds a BatchDecodeResult from per-image results, freeing them as it goes
+static jobject createBatchResult(JNIEnv *env, std::vector<TextResultArray *> &arrays, std::vector<jint> &errorCodes)
+{
+	PhaseTimer collectTimer(t_lastTiming.collectNanos);
+	int imageCount = (int)arrays.size();
+	std::vector<jint> offsets(imageCount + 1, 0);
+	for (int image = 0; image < imageCount; image++)
+		offsets[image + 1] = offsets[image] + (arrays[image] ? arrays[image]->resultsCount : 0);
+
+	jobjectArray results = env->NewObjectArray(offsets[imageCount], g_resultClass, NULL);
+	for (int image = 0; image < imageCount; image++)
+	{
+		TextResultArray *paryResult = arrays[image];
+		for (int index = 0; results && paryResult && index < paryResult->resultsCount; index++)
+		{
+			jobject result = createBarcodeResult(env, paryResult->results[index]);
+			if (!result)
+				break;
+			env->SetObjectArrayElement(results, offsets[image] + index, result);
+			env->DeleteLocalRef(result);
+		}
+		freeResults(&arrays[image]);
+	}
+	if (!results || env->ExceptionCheck())
+		return NULL;
+
+	jintArray offsetArray = env->NewIntArray(imageCount + 1);
+	jintArray errorArray = env->NewIntArray(imageCount);
+	if (!offsetArray || !errorArray)
+		return NULL;
+	env->SetIntArrayRegion(offsetArray, 0, imageCount + 1, offsets.data());
+	env->SetIntArrayRegion(errorArray, 0, imageCount, errorCodes.data());
+	return env->NewObject(g_batchClass, g_batchInit, results, offsetArray, errorArray);
+}
+
+// Records the outcome of one image of a batch
+static void collectBatchItem(void *hBarcode, int ret, std::vector<TextResultArray *> &arrays, std::vector<jint> &errorCodes)
+{
+	PhaseTimer collectTimer(t_lastTiming.collectNanos);
+	TextResultArray *paryResult = NULL;
+	if (ret == DBR_OK)
+	{
+		DBR_GetAllTextResults(hBarcode, &paryResult);
+		trackResults(paryResult);
+	}
+	arrays.push_back(paryResult);
+	errorCodes.push_back(ret);
+}
+
+static JNIEnv *attachCurrentThread()
+{
+	JNIEnv *env = NULL;
+	jint status = g_vm->GetEnv((void **)&env, JNI_VERSION_1_6);
+	if (status == JNI_EDETACHED)
+	{
+		// Stay attached until the worker thread exits instead of attaching once per callback
+		if (g_vm->AttachCurrentThreadAsDaemon((void **)&env, NULL) != JNI_OK)
+			return NULL;
+		t_detacher.attached = true;
+	}
+	else if (status != JNI_OK)
+	{
+		return NULL;
+	}
+	return env;
+}
+
+static void clearListenerException(JNIEnv *env)
+{
+	if (env->ExceptionCheck())
+	{
+		env->ExceptionDescribe();
+		env->ExceptionClear();
+	}
+}
+
+static void onFrameTextResult(int frameId, TextResultArray *pResults, void *pUser)
+{
+	FrameContext *context = (FrameContext *)pUser;
+	trackResults(pResults);
+	JNIEnv *env = attachCurrentThread();
+	if (env && env->PushLocalFrame(16) == JNI_OK)
+	{
+		jobjectArray results = createResultArray(env, pResults);
+		if (results)
+			env->CallVoidMethod(context->listener, g_listenerOnResult, (jint)frameId, results);
+		clearListenerException(env);
+		env->PopLocalFrame(NULL);
+	}
+
+	// Results passed to the callback are owned by the callee
+	freeResults(&pResults);
+}
+
+static void onFrameError(int frameId, int errorCode, void *pUser)
+{
+	FrameContext *context = (FrameContext *)pUser;
+	JNIEnv *env = attachCurrentThread();
+	if (env)
+	{
+		env->CallVoidMethod(context->listener, g_listenerOnError, (jint)frameId, (jint)errorCode);
+		clearListenerException(env);
+	}
+}
+
+static void setFrameCallbacks(void *hBarcode, FrameContext *context, bool uniqueBarcodes)
+{
+	if (uniqueBarcodes)
+		DBR_SetUniqueBarcodeCallback(hBarcode, context ? onFrameTextResult : NULL, context);
+	else
+		DBR_SetTextResultCallback(hBarcode, context ? onFrameTextResult : NULL, context);
+	DBR_SetErrorCallback(hBarcode, context ? onFrameError : NULL, context);
+}
+
+static void deleteFrameContext(JNIEnv *env, FrameContext *context)
+{
+	env->DeleteGlobalRef(context->listener);
+	delete context;
+}
+
 #ifdef __cplusplus
 extern "C"
 {
 #endif
 
+	JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *)
+	{
+		JNIEnv *env = NULL;
+		if (vm->GetEnv((void **)&env, JNI_VERSION_1_6) != JNI_OK)
+			return JNI_ERR;
+
+		g_resultClass = findGlobalClass(env, "com/dynamsoft/barcode/BarcodeResult");
+		if (!g_resultClass)
+			return JNI_ERR;
+		g_resultInit = env->GetMethodID(g_resultClass, "<init>", "(Ljava/lang/String;[BLjava/lang/String;IIIIIIII)V");
+
+		g_exceptionClass = findGlobalClass(env, "com/dynamsoft/barcode/BarcodeReaderException");
+		if (!g_exceptionClass)
+			return JNI_ERR;
+		g_exceptionInit = env->GetMethodID(g_exceptionClass, "<init>", "(ILjava/lang/String;)V");
+
+		g_stringClass = findGlobalClass(env, "java/lang/String");
+		if (!g_stringClass)
+			return JNI_ERR;
+
+		g_batchClass = findGlobalClass(env, "com/dynamsoft/barcode/BatchDecodeResult");
+		if (!g_batchClass)
+			return JNI_ERR;
+		g_batchInit = env->GetMethodID(g_batchClass, "<init>", "([Lcom/dynamsoft/barcode/BarcodeResult;[I[I)V");
+
+		g_listenerClass = findGlobalClass(env, "com/dynamsoft/barcode/FrameResultListener");
+		if (!g_listenerClass)
+			return JNI_ERR;
+		g_listenerOnResult = env->GetMethodID(g_listenerClass, "onResult", "(I[Lcom/dynamsoft/barcode/BarcodeResult;)V");
+		g_listenerOnError = env->GetMethodID(g_listenerClass, "onError", "(II)V");
+
+		if (!g_resultInit || !g_exceptionInit || !g_batchInit || !g_listenerOnResult || !g_listenerOnError)
+			return JNI_ERR;
+		g_vm = vm;
+		return JNI_VERSION_1_6;
+	}
+
+	JNIEXPORT void JNICALL JNI_OnUnload(JavaVM *vm, void *)
+	{
+		JNIEnv *env = NULL;
+		if (vm->GetEnv((void **)&env, JNI_VERSION_1_6) != JNI_OK)
+			return;
+
+		env->DeleteGlobalRef(g_resultClass);
+		env->DeleteGlobalRef(g_exceptionClass);
+		env->DeleteGlobalRef(g_stringClass);
+		env->DeleteGlobalRef(g_batchClass);
+		env->DeleteGlobalRef(g_listenerClass);
+	}
+
 	/*
 	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
 	* Method:    nativeInitLicense
@@ -31,9 +464,12 @@ extern "C"
 	* Method:    nativeCreateInstance
 	* Signature: ()J
 	*/
-	JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeCreateInstance(JNIEnv *, jobject)
+	JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeCreateInstance(JNIEnv *, jclass)
 	{
-		return (jlong)DBR_CreateInstance();
+		void *hBarcode = DBR_CreateInstance();
+		if (hBarcode)
+			g_liveInstances++;
+		return (jlong)hBarcode;
 	}
 
 	/*
@@ -41,44 +477,564 @@ extern "C"
 	* Method:    nativeDestroyInstance
 	* Signature: (J)V
 	*/
-	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDestroyInstance(JNIEnv *, jobject, jlong hBarcode)
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDestroyInstance(JNIEnv *, jclass, jlong hBarcode)
 	{
 		if (hBarcode)
 		{
 			DBR_DestroyInstance((void *)hBarcode);
+			g_liveInstances--;
 		}
 	}
 
 	/*
 	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
 	* Method:    nativeDecodeFile
-	* Signature: (JLjava/lang/String;)V
+	* Signature: (JLjava/lang/String;Ljava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+	*/
+	JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFile(JNIEnv *env, jobject, jlong ptr, jstring fileName, jstring templateName)
+	{
+		if (!ptr)
+			return NULL;
+
+		DecodeTimer timer;
+		void *hBarcode = (void *)ptr;
+		int ret;
+		{
+			JStringChars pszFileName(env, fileName);
+			JStringChars pszTemplateName(env, templateName);
+			{
+				PhaseTimer decodeTimer(t_lastTiming.decodeNanos);
+				ret = DBR_DecodeFile(hBarcode, pszFileName.get(), pszTemplateName.get());
+			}
+		}
+		return collectResults(env, hBarcode, ret);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeDecodeFileInMemory
+	* Signature: (J[BIILjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+	*/
+	JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFileInMemory(JNIEnv *env, jobject, jlong ptr, jbyteArray data, jint offset, jint length, jstring templateName)
+	{
+		if (!ptr)
+			return NULL;
+
+		DecodeTimer timer;
+		void *hBarcode = (void *)ptr;
+		int ret;
+		{
+			JStringChars pszTemplateName(env, templateName);
+
+			// Decode time depends on the image size, not the encoded size, so the array is never pinned
+			// for the decode: a critical region would hold off GC in every thread until DBR returns
+			unsigned char *pData = (unsigned char *)malloc(length > 0 ? length : 1);
+			if (!pData)
+			{
+				throwBarcodeReaderException(env, DBRERR_NO_MEMORY);
+				return NULL;
+			}
+			env->GetByteArrayRegion(data, offset, length, (jbyte *)pData);
+
+			{
+				PhaseTimer decodeTimer(t_lastTiming.decodeNanos);
+				ret = DBR_DecodeFileInMemory(hBarcode, pData, length, pszTemplateName.get());
+			}
+
+			free(pData);
+		}
+		return collectResults(env, hBarcode, ret);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeDecodeFileInMemoryDirect
+	* Signature: (JLjava/nio/ByteBuffer;IILjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+	*/
+	JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFileInMemoryDirect(JNIEnv *env, jobject, jlong ptr, jobject buffer, jint offset, jint length, jstring templateName)
+	{
+		if (!ptr)
+			return NULL;
+
+		DecodeTimer timer;
+		void *hBarcode = (void *)ptr;
+		unsigned char *pData = (unsigned char *)env->GetDirectBufferAddress(buffer);
+		if (!pData)
+		{
+			throwBarcodeReaderException(env, DBRERR_NULL_POINTER);
+			return NULL;
+		}
+
+		int ret;
+		{
+			JStringChars pszTemplateName(env, templateName);
+			{
+				PhaseTimer decodeTimer(t_lastTiming.decodeNanos);
+				ret = DBR_DecodeFileInMemory(hBarcode, pData + offset, length, pszTemplateName.get());
+			}
+		}
+		return collectResults(env, hBarcode, ret);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeDecodeBuffer
+	* Signature: (JLjava/nio/ByteBuffer;IIIIILjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+	*/
+	JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeBuffer(JNIEnv *env, jobject, jlong ptr, jobject buffer, jint offset, jint width, jint height, jint stride, jint format, jstring templateName)
+	{
+		if (!ptr)
+			return NULL;
+
+		DecodeTimer timer;
+		void *hBarcode = (void *)ptr;
+		unsigned char *pBuffer = (unsigned char *)env->GetDirectBufferAddress(buffer);
+		if (!pBuffer)
+		{
+			throwBarcodeReaderException(env, DBRERR_NULL_POINTER);
+			return NULL;
+		}
+
+		int ret;
+		{
+			JStringChars pszTemplateName(env, templateName);
+			{
+				PhaseTimer decodeTimer(t_lastTiming.decodeNanos);
+				ret = DBR_DecodeBuffer(hBarcode, pBuffer + offset, width, height, stride, (ImagePixelFormat)format, pszTemplateName.get());
+			}
+		}
+		return collectResults(env, hBarcode, ret);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeDecodeFileBatch
+	* Signature: (J[Ljava/lang/String;Ljava/lang/String;)Lcom/dynamsoft/barcode/BatchDecodeResult;
+	*/
+	JNIEXPORT jobject JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFileBatch(JNIEnv *env, jobject, jlong ptr, jobjectArray fileNames, jstring templateName)
+	{
+		if (!ptr)
+			return NULL;
+
+		DecodeTimer timer;
+		void *hBarcode = (void *)ptr;
+		JStringChars pszTemplateName(env, templateName);
+		int count = env->GetArrayLength(fileNames);
+		std::vector<TextResultArray *> arrays;
+		std::vector<jint> errorCodes;
+		arrays.reserve(count);
+		errorCodes.reserve(count);
+
+		for (int image = 0; image < count; image++)
+		{
+			jstring fileName = (jstring)env->GetObjectArrayElement(fileNames, image);
+			if (!fileName)
+			{
+				collectBatchItem(hBarcode, DBRERR_NULL_POINTER, arrays, errorCodes);
+				continue;
+			}
+			int ret;
+			{
+				JStringChars pszFileName(env, fileName);
+				PhaseTimer decodeTimer(t_lastTiming.decodeNanos);
+				ret = DBR_DecodeFile(hBarcode, pszFileName.get(), pszTemplateName.get());
+			}
+			env->DeleteLocalRef(fileName);
+			collectBatchItem(hBarcode, ret, arrays, errorCodes);
+		}
+
+		return createBatchResult(env, arrays, errorCodes);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeDecodeMemoryBatch
+	* Signature: (J[Ljava/nio/ByteBuffer;[I[ILjava/lang/String;)Lcom/dynamsoft/barcode/BatchDecodeResult;
+	*/
+	JNIEXPORT jobject JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeMemoryBatch(JNIEnv *env, jobject, jlong ptr, jobjectArray images, jintArray offsetArray, jintArray lengthArray, jstring templateName)
+	{
+		if (!ptr)
+			return NULL;
+
+		DecodeTimer timer;
+		void *hBarcode = (void *)ptr;
+		JStringChars pszTemplateName(env, templateName);
+		int count = env->GetArrayLength(images);
+		std::vector<jint> offsets(count), lengths(count);
+		if (count > 0)
+		{
+			env->GetIntArrayRegion(offsetArray, 0, count, offsets.data());
+			env->GetIntArrayRegion(lengthArray, 0, count, lengths.data());
+		}
+		std::vector<TextResultArray *> arrays;
+		std::vector<jint> errorCodes;
+		arrays.reserve(count);
+		errorCodes.reserve(count);
+
+		for (int image = 0; image < count; image++)
+		{
+			jobject buffer = env->GetObjectArrayElement(images, image);
+			unsigned char *pData = (unsigned char *)env->GetDirectBufferAddress(buffer);
+			env->DeleteLocalRef(buffer);
+
+			int ret = DBRERR_NULL_POINTER;
+			if (pData)
+			{
+				PhaseTimer decodeTimer(t_lastTiming.decodeNanos);
+				ret = DBR_DecodeFileInMemory(hBarcode, pData + offsets[image], lengths[image], pszTemplateName.get());
+			}
+			collectBatchItem(hBarcode, ret, arrays, errorCodes);
+		}
+
+		return createBatchResult(env, arrays, errorCodes);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeInitRuntimeSettingsWithString
+	* Signature: (JLjava/lang/String;I)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeInitRuntimeSettingsWithString(JNIEnv *env, jobject, jlong ptr, jstring content, jint conflictMode)
+	{
+		if (!ptr)
+			return;
+
+		char errorMsgBuffer[512] = {0};
+		int ret;
+		{
+			JStringChars pszContent(env, content);
+			ret = DBR_InitRuntimeSettingsWithString((void *)ptr, pszContent.get(), (ConflictMode)conflictMode, errorMsgBuffer, 512);
+		}
+		if (ret != DBR_OK)
+			throwBarcodeReaderException(env, ret, errorMsgBuffer);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeAppendTplStringToRuntimeSettings
+	* Signature: (JLjava/lang/String;I)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeAppendTplStringToRuntimeSettings(JNIEnv *env, jobject, jlong ptr, jstring content, jint conflictMode)
+	{
+		if (!ptr)
+			return;
+
+		char errorMsgBuffer[512] = {0};
+		int ret;
+		{
+			JStringChars pszContent(env, content);
+			ret = DBR_AppendTplStringToRuntimeSettings((void *)ptr, pszContent.get(), (ConflictMode)conflictMode, errorMsgBuffer, 512);
+		}
+		if (ret != DBR_OK)
+			throwBarcodeReaderException(env, ret, errorMsgBuffer);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeResetRuntimeSettings
+	* Signature: (J)V
 	*/
-	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFile(JNIEnv *env, jobject, jlong ptr, jstring fileName)
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeResetRuntimeSettings(JNIEnv *, jobject, jlong ptr)
 	{
 		if (ptr)
+			DBR_ResetRuntimeSettings((void *)ptr);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetParameterTemplateNames
+	* Signature: (J)[Ljava/lang/String;
+	*/
+	JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetParameterTemplateNames(JNIEnv *env, jobject, jlong ptr)
+	{
+		if (!ptr)
+			return NULL;
+
+		void *hBarcode = (void *)ptr;
+		int count = DBR_GetParameterTemplateCount(hBarcode);
+		if (count < 0)
+			count = 0;
+
+		jobjectArray names = env->NewObjectArray(count, g_stringClass, NULL);
+		for (int index = 0; names && index < count; index++)
+		{
+			char nameBuffer[256] = {0};
+			DBR_GetParameterTemplateName(hBarcode, index, nameBuffer, 256);
+			jstring name = env->NewStringUTF(nameBuffer);
+			env->SetObjectArrayElement(names, index, name);
+			env->DeleteLocalRef(name);
+		}
+		return names;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeSetRegion
+	* Signature: (J[I)[I
+	*/
+	JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetRegion(JNIEnv *env, jobject, jlong ptr, jintArray region)
+	{
+		if (!ptr)
+			return NULL;
+
+		void *hBarcode = (void *)ptr;
+		PublicRuntimeSettings settings;
+		int ret = DBR_GetRuntimeSettings(hBarcode, &settings);
+		if (ret != DBR_OK)
+		{
+			throwBarcodeReaderException(env, ret);
+			return NULL;
+		}
+
+		// Returned in the same order as the argument: top, left, right, bottom, measuredByPercentage
+		jint previous[5] = {settings.region.regionTop, settings.region.regionLeft, settings.region.regionRight,
+							settings.region.regionBottom, settings.region.regionMeasuredByPercentage};
+		jint values[5];
+		env->GetIntArrayRegion(region, 0, 5, values);
+		settings.region.regionTop = values[0];
+		settings.region.regionLeft = values[1];
+		settings.region.regionRight = values[2];
+		settings.region.regionBottom = values[3];
+		settings.region.regionMeasuredByPercentage = values[4];
+
+		char errorMsgBuffer[512] = {0};
+		ret = DBR_UpdateRuntimeSettings(hBarcode, &settings, errorMsgBuffer, 512);
+		if (ret != DBR_OK)
+		{
+			throwBarcodeReaderException(env, ret, errorMsgBuffer);
+			return NULL;
+		}
+
+		jintArray result = env->NewIntArray(5);
+		if (result)
+			env->SetIntArrayRegion(result, 0, 5, previous);
+		return result;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeSetIntermediateResultTypes
+	* Signature: (JI)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetIntermediateResultTypes(JNIEnv *env, jobject, jlong ptr, jint resultTypes)
+	{
+		if (!ptr)
+			return;
+
+		void *hBarcode = (void *)ptr;
+		PublicRuntimeSettings settings;
+		int ret = DBR_GetRuntimeSettings(hBarcode, &settings);
+		if (ret != DBR_OK)
+		{
+			throwBarcodeReaderException(env, ret);
+			return;
+		}
+
+		settings.intermediateResultTypes = resultTypes;
+		settings.intermediateResultSavingMode = IRSM_MEMORY;
+
+		char errorMsgBuffer[512] = {0};
+		ret = DBR_UpdateRuntimeSettings(hBarcode, &settings, errorMsgBuffer, 512);
+		if (ret != DBR_OK)
+			throwBarcodeReaderException(env, ret, errorMsgBuffer);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetIntermediateResults
+	* Signature: (J)J
+	*/
+	JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetIntermediateResults(JNIEnv *env, jobject, jlong ptr)
+	{
+		if (!ptr)
+			return 0;
+
+		IntermediateResultArray *pResults = NULL;
+		int ret = DBR_GetIntermediateResults((void *)ptr, &pResults);
+		if (ret != DBR_OK)
 		{
-			void *hBarcode = (void *)ptr;
-			const char *pszFileName = env->GetStringUTFChars(fileName, NULL);
+			if (pResults)
+				DBR_FreeIntermediateResults(&pResults);
+			throwBarcodeReaderException(env, ret);
+			return 0;
+		}
+
+		if (pResults && pResults->resultsCount == 0)
+			DBR_FreeIntermediateResults(&pResults);
 
-			DBR_DecodeFile(hBarcode, pszFileName, "");
+		// Held by an IntermediateResults handle until nativeFreeIntermediateResults
+		trackIntermediateResults(pResults);
+		return (jlong)pResults;
+	}
 
-			TextResultArray *paryResult = NULL;
-			DBR_GetAllTextResults(hBarcode, &paryResult);
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeDecodeIntermediateResults
+	* Signature: (JJLjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+	*/
+	JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeIntermediateResults(JNIEnv *env, jobject, jlong ptr, jlong resultsPtr, jstring templateName)
+	{
+		if (!ptr || !resultsPtr)
+			return NULL;
 
-			int count = paryResult->resultsCount;
-			for (int index = 0; index < paryResult->resultsCount; index++)
+		DecodeTimer timer;
+		void *hBarcode = (void *)ptr;
+		int ret;
+		{
+			JStringChars pszTemplateName(env, templateName);
 			{
-				printf("Barcode %d:\n", index + 1);
-				printf("    Type: %s\n", paryResult->results[index]->barcodeFormatString);
-				printf("    Text: %s\n", paryResult->results[index]->barcodeText);
+				PhaseTimer decodeTimer(t_lastTiming.decodeNanos);
+				ret = DBR_DecodeIntermediateResults(hBarcode, (IntermediateResultArray *)resultsPtr, pszTemplateName.get());
 			}
+		}
+		return collectResults(env, hBarcode, ret);
+	}
 
-			// Release memory
-			DBR_FreeTextResults(&paryResult);
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetIntermediateResultTypes
+	* Signature: (J)[I
+	*/
+	JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetIntermediateResultTypes(JNIEnv *env, jclass, jlong resultsPtr)
+	{
+		IntermediateResultArray *pResults = (IntermediateResultArray *)resultsPtr;
+		int count = pResults ? pResults->resultsCount : 0;
 
-			env->ReleaseStringUTFChars(fileName, pszFileName);
+		jintArray types = env->NewIntArray(count);
+		for (int index = 0; types && index < count; index++)
+		{
+			jint type = pResults->results[index]->resultType;
+			env->SetIntArrayRegion(types, index, 1, &type);
 		}
+		return types;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeFreeIntermediateResults
+	* Signature: (J)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeFreeIntermediateResults(JNIEnv *, jclass, jlong resultsPtr)
+	{
+		IntermediateResultArray *pResults = (IntermediateResultArray *)resultsPtr;
+		freeIntermediateResults(&pResults);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeStartFrameDecoding
+	* Signature: (J[IFLcom/dynamsoft/barcode/FrameResultListener;Z)J
+	*/
+	JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeStartFrameDecoding(JNIEnv *env, jobject, jlong ptr, jintArray parameters, jfloat threshold, jobject listener, jboolean uniqueBarcodes)
+	{
+		if (!ptr)
+			return 0;
+
+		void *hBarcode = (void *)ptr;
+		jint values[17];
+		env->GetIntArrayRegion(parameters, 0, 17, values);
+		if (env->ExceptionCheck())
+			return 0;
+
+		FrameDecodingParameters params;
+		DBR_InitFrameDecodingParameters(hBarcode, &params);
+		params.maxQueueLength = values[0];
+		params.maxResultQueueLength = values[1];
+		params.width = values[2];
+		params.height = values[3];
+		params.stride = values[4];
+		params.imagePixelFormat = (ImagePixelFormat)values[5];
+		params.region.regionTop = values[6];
+		params.region.regionLeft = values[7];
+		params.region.regionRight = values[8];
+		params.region.regionBottom = values[9];
+		params.region.regionMeasuredByPercentage = values[10];
+		params.threshold = threshold;
+		params.fps = values[11];
+		params.autoFilter = values[12];
+		params.clarityCalculationMethod = (ClarityCalculationMethod)values[13];
+		params.clarityFilterMode = (ClarityFilterMode)values[14];
+		params.duplicateForgetTime = values[15];
+		params.orientation = values[16];
+
+		FrameContext *context = new FrameContext();
+		context->listener = env->NewGlobalRef(listener);
+		context->maxQueueLength = params.maxQueueLength;
+		context->uniqueBarcodes = uniqueBarcodes == JNI_TRUE;
+		context->queueBytes = (long long)params.stride * params.height * params.maxQueueLength;
+
+		// Callbacks have to be registered before the decoding thread starts. In unique mode DBR filters
+		// repeats within duplicateForgetTime, so only new barcodes are marshalled.
+		setFrameCallbacks(hBarcode, context, context->uniqueBarcodes);
+
+		int ret = DBR_StartFrameDecodingEx(hBarcode, params, "");
+		if (ret != DBR_OK)
+		{
+			setFrameCallbacks(hBarcode, NULL, context->uniqueBarcodes);
+			deleteFrameContext(env, context);
+			throwBarcodeReaderException(env, ret);
+			return 0;
+		}
+		g_bytesHeld += context->queueBytes;
+		return (jlong)context;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeAppendFrame
+	* Signature: (JJLjava/nio/ByteBuffer;I)I
+	*/
+	JNIEXPORT jint JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeAppendFrame(JNIEnv *env, jobject, jlong ptr, jlong frameContext, jobject frame, jint offset)
+	{
+		if (!ptr || !frameContext)
+			return -1;
+
+		void *hBarcode = (void *)ptr;
+		FrameContext *context = (FrameContext *)frameContext;
+
+		// Refuse the frame rather than letting the queue grow, so the producer sees the backpressure
+		if (DBR_GetLengthOfFrameQueue(hBarcode) >= context->maxQueueLength)
+			return -1;
+
+		unsigned char *pFrame = (unsigned char *)env->GetDirectBufferAddress(frame);
+		if (!pFrame)
+			return -1;
+		return DBR_AppendFrame(hBarcode, pFrame + offset);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetLengthOfFrameQueue
+	* Signature: (J)I
+	*/
+	JNIEXPORT jint JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetLengthOfFrameQueue(JNIEnv *, jobject, jlong ptr)
+	{
+		if (!ptr)
+			return 0;
+		return DBR_GetLengthOfFrameQueue((void *)ptr);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeStopFrameDecoding
+	* Signature: (JJ)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeStopFrameDecoding(JNIEnv *env, jclass, jlong ptr, jlong frameContext)
+	{
+		if (!ptr || !frameContext)
+			return;
+
+		void *hBarcode = (void *)ptr;
+		FrameContext *context = (FrameContext *)frameContext;
+		int ret = DBR_StopFrameDecoding(hBarcode);
+
+		// The decoding thread has finished, so no callback can still be using the context
+		setFrameCallbacks(hBarcode, NULL, context->uniqueBarcodes);
+		g_bytesHeld -= context->queueBytes;
+		deleteFrameContext(env, context);
+
+		if (ret != DBR_OK)
+			throwBarcodeReaderException(env, ret);
 	}
 
 	JNIEXPORT jstring JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetVersion(JNIEnv *env, jobject) 
@@ -87,6 +1043,168 @@ extern "C"
 		return env->NewStringUTF(version);
 	}
 
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeInitGlobalLicense
+	* Signature: (Ljava/lang/String;)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeInitGlobalLicense(JNIEnv *env, jclass, jstring license)
+	{
+		const char *pszLicense = env->GetStringUTFChars(license, NULL);
+
+		char errorMsgBuffer[512] = {0};
+		int ret = DBR_InitLicense(pszLicense, errorMsgBuffer, 512);
+
+		env->ReleaseStringUTFChars(license, pszLicense);
+		if (ret != DBR_OK)
+			throwBarcodeReaderException(env, ret, errorMsgBuffer);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeSetMaxConcurrentInstanceCount
+	* Signature: (III)I
+	*/
+	JNIEXPORT jint JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetMaxConcurrentInstanceCount(JNIEnv *, jclass, jint countForThisDevice, jint countForThisProcess, jint timeout)
+	{
+		return DBR_SetMaxConcurrentInstanceCount(countForThisDevice, countForThisProcess, timeout);
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetInstance
+	* Signature: ()J
+	*/
+	JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetInstance(JNIEnv *, jclass)
+	{
+		void *hBarcode = DBR_GetInstance();
+		if (hBarcode)
+			g_liveInstances++;
+		return (jlong)hBarcode;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeRecycleInstance
+	* Signature: (J)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeRecycleInstance(JNIEnv *, jclass, jlong hBarcode)
+	{
+		if (hBarcode)
+		{
+			DBR_RecycleInstance((void *)hBarcode);
+			g_liveInstances--;
+		}
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetInstancePoolStatus
+	* Signature: ()[I
+	*/
+	JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetInstancePoolStatus(JNIEnv *env, jclass)
+	{
+		InstancePoolStatus status = DBR_GetInstancePoolStatus();
+		jint values[4] = {status.authorizedInstancesCount, status.remainingInstancesCount,
+						  status.waitingCreationInstances, status.totalWaitOccurrences};
+
+		jintArray array = env->NewIntArray(4);
+		if (array)
+			env->SetIntArrayRegion(array, 0, 4, values);
+		return array;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetMemoryStats
+	* Signature: ()[J
+	*/
+	JNIEXPORT jlongArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetMemoryStats(JNIEnv *env, jclass)
+	{
+		jlong values[3] = {g_liveInstances.load(), g_resultArrays.load(), g_bytesHeld.load()};
+
+		jlongArray array = env->NewLongArray(3);
+		if (array)
+			env->SetLongArrayRegion(array, 0, 3, values);
+		return array;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeSetDecodeTiming
+	* Signature: (Z)V
+	*/
+	JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetDecodeTiming(JNIEnv *, jclass, jboolean enabled)
+	{
+		t_timingEnabled = enabled == JNI_TRUE;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetLastDecodeTiming
+	* Signature: ()[J
+	*/
+	JNIEXPORT jlongArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetLastDecodeTiming(JNIEnv *env, jclass)
+	{
+		jlong values[3] = {t_lastTiming.totalNanos, t_lastTiming.decodeNanos, t_lastTiming.collectNanos};
+
+		jlongArray array = env->NewLongArray(3);
+		if (array)
+			env->SetLongArrayRegion(array, 0, 3, values);
+		return array;
+	}
+
+	/*
+	* Class:     com_dynamsoft_barcode_NativeBarcodeReader
+	* Method:    nativeGetStageSummary
+	* Signature: (J)[I
+	*/
+	JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetStageSummary(JNIEnv *env, jobject, jlong ptr)
+	{
+		// Diagnostics are best effort: a failure leaves the summary empty rather than failing the decode
+		IntermediateResultArray *pResults = NULL;
+		if (ptr && DBR_GetIntermediateResults((void *)ptr, &pResults) != DBR_OK)
+		{
+			if (pResults)
+				DBR_FreeIntermediateResults(&pResults);
+			pResults = NULL;
+		}
+
+		// One (type, item count, mode) triple per intermediate result
+		int count = pResults ? pResults->resultsCount : 0;
+		std::vector<jint> summary;
+		summary.reserve(count * 3);
+		for (int index = 0; index < count; index++)
+		{
+			IntermediateResult *pResult = pResults->results[index];
+			jint mode = 0;
+			switch (pResult->resultType)
+			{
+			case IRT_PREDETECTED_REGION:
+				mode = pResult->regionPredetectionMode;
+				break;
+			case IRT_BINARIZED_IMAGE:
+				mode = pResult->binarizationMode;
+				break;
+			case IRT_TYPED_BARCODE_ZONE:
+				mode = pResult->localizationMode;
+				break;
+			default:
+				break;
+			}
+			summary.push_back(pResult->resultType);
+			summary.push_back(pResult->resultsCount);
+			summary.push_back(mode);
+		}
+		if (pResults)
+			DBR_FreeIntermediateResults(&pResults);
+
+		jintArray array = env->NewIntArray((jsize)summary.size());
+		if (array && !summary.empty())
+			env->SetIntArrayRegion(array, 0, (jsize)summary.size(), summary.data());
+		return array;
+	}
+
 #ifdef __cplusplus
 }
 #endif
\ No newline at end of file
@@ -21,7 +21,7 @@ JNIEXPORT jint JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeInit
  * Signature: ()J
  */
 JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeCreateInstance
-  (JNIEnv *, jobject);
+  (JNIEnv *, jclass);
 
 /*
  * Class:     com_dynamsoft_barcode_NativeBarcodeReader
@@ -29,19 +29,243 @@ JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeCre
  * Signature: (J)V
  */
 JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDestroyInstance
-  (JNIEnv *, jobject, jlong);
+  (JNIEnv *, jclass, jlong);
 
 /*
  * Class:     com_dynamsoft_barcode_NativeBarcodeReader
  * Method:    nativeDecodeFile
- * Signature: (JLjava/lang/String;)V
+ * Signature: (JLjava/lang/String;Ljava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
  */
-JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFile
-  (JNIEnv *, jobject, jlong, jstring);
+JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFile
+  (JNIEnv *, jobject, jlong, jstring, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeDecodeFileInMemory
+ * Signature: (J[BIILjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFileInMemory
+  (JNIEnv *, jobject, jlong, jbyteArray, jint, jint, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeDecodeFileInMemoryDirect
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFileInMemoryDirect
+  (JNIEnv *, jobject, jlong, jobject, jint, jint, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeDecodeBuffer
+ * Signature: (JLjava/nio/ByteBuffer;IIIIILjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeBuffer
+  (JNIEnv *, jobject, jlong, jobject, jint, jint, jint, jint, jint, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeDecodeFileBatch
+ * Signature: (J[Ljava/lang/String;Ljava/lang/String;)Lcom/dynamsoft/barcode/BatchDecodeResult;
+ */
+JNIEXPORT jobject JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeFileBatch
+  (JNIEnv *, jobject, jlong, jobjectArray, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeDecodeMemoryBatch
+ * Signature: (J[Ljava/nio/ByteBuffer;[I[ILjava/lang/String;)Lcom/dynamsoft/barcode/BatchDecodeResult;
+ */
+JNIEXPORT jobject JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeMemoryBatch
+  (JNIEnv *, jobject, jlong, jobjectArray, jintArray, jintArray, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeInitRuntimeSettingsWithString
+ * Signature: (JLjava/lang/String;I)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeInitRuntimeSettingsWithString
+  (JNIEnv *, jobject, jlong, jstring, jint);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeAppendTplStringToRuntimeSettings
+ * Signature: (JLjava/lang/String;I)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeAppendTplStringToRuntimeSettings
+  (JNIEnv *, jobject, jlong, jstring, jint);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeResetRuntimeSettings
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeResetRuntimeSettings
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetParameterTemplateNames
+ * Signature: (J)[Ljava/lang/String;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetParameterTemplateNames
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeSetRegion
+ * Signature: (J[I)[I
+ */
+JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetRegion
+  (JNIEnv *, jobject, jlong, jintArray);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeSetIntermediateResultTypes
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetIntermediateResultTypes
+  (JNIEnv *, jobject, jlong, jint);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetIntermediateResults
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetIntermediateResults
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeDecodeIntermediateResults
+ * Signature: (JJLjava/lang/String;)[Lcom/dynamsoft/barcode/BarcodeResult;
+ */
+JNIEXPORT jobjectArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeDecodeIntermediateResults
+  (JNIEnv *, jobject, jlong, jlong, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetIntermediateResultTypes
+ * Signature: (J)[I
+ */
+JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetIntermediateResultTypes
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeFreeIntermediateResults
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeFreeIntermediateResults
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeStartFrameDecoding
+ * Signature: (J[IFLcom/dynamsoft/barcode/FrameResultListener;Z)J
+ */
+JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeStartFrameDecoding
+  (JNIEnv *, jobject, jlong, jintArray, jfloat, jobject, jboolean);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeAppendFrame
+ * Signature: (JJLjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeAppendFrame
+  (JNIEnv *, jobject, jlong, jlong, jobject, jint);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetLengthOfFrameQueue
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetLengthOfFrameQueue
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeStopFrameDecoding
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeStopFrameDecoding
+  (JNIEnv *, jclass, jlong, jlong);
 
 JNIEXPORT jstring JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetVersion
   (JNIEnv *, jobject);
 
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeInitGlobalLicense
+ * Signature: (Ljava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeInitGlobalLicense
+  (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeSetMaxConcurrentInstanceCount
+ * Signature: (III)I
+ */
+JNIEXPORT jint JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetMaxConcurrentInstanceCount
+  (JNIEnv *, jclass, jint, jint, jint);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetInstance
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetInstance
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeRecycleInstance
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeRecycleInstance
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetInstancePoolStatus
+ * Signature: ()[I
+ */
+JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetInstancePoolStatus
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetMemoryStats
+ * Signature: ()[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetMemoryStats
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeSetDecodeTiming
+ * Signature: (Z)V
+ */
+JNIEXPORT void JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeSetDecodeTiming
+  (JNIEnv *, jclass, jboolean);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetLastDecodeTiming
+ * Signature: ()[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetLastDecodeTiming
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_dynamsoft_barcode_NativeBarcodeReader
+ * Method:    nativeGetStageSummary
+ * Signature: (J)[I
+ */
+JNIEXPORT jintArray JNICALL Java_com_dynamsoft_barcode_NativeBarcodeReader_nativeGetStageSummary
+  (JNIEnv *, jobject, jlong);
+
 #ifdef __cplusplus
 }
 #endif
@@ -0,0 +1,17 @@
+# Writes dbr.manifest into DIR with one "<sha256> <size> <name>" line per bundled library, so that
+# NativeLoader can check extracted libraries without hashing the jar resources at startup.
+#
+# Usage: cmake -DDIR=<directory> -P WriteManifest.cmake
+
+file(GLOB LIBRARIES RELATIVE "${DIR}" "${DIR}/*.so" "${DIR}/*.dll" "${DIR}/*.dylib" "${DIR}/*.jnilib")
+list(SORT LIBRARIES)
+set(MANIFEST "")
+foreach(LIBRARY ${LIBRARIES})
+    file(SHA256 "${DIR}/${LIBRARY}" HASH)
+    file(READ "${DIR}/${LIBRARY}" CONTENT HEX)
+    string(LENGTH "${CONTENT}" HEX_LENGTH)
+    math(EXPR SIZE "${HEX_LENGTH} / 2")
+    set(MANIFEST "${MANIFEST}${HASH} ${SIZE} ${LIBRARY}\n")
+endforeach()
+file(WRITE "${DIR}/dbr.manifest" "${MANIFEST}")
+MESSAGE( STATUS "Wrote ${DIR}/dbr.manifest" )
@@ -0,0 +1,286 @@
+package com.dynamsoft.barcode;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Decodes many image files in parallel on a fixed set of worker threads, each owning its own
+ * {@link NativeBarcodeReader}.
+ *
+ * <pre>
+ * try (BarcodeBatchDecoder decoder = new BarcodeBatchDecoder(8);
+ * 		Stream&lt;Path&gt; files = Files.list(dir)) {
+ * 	decoder.decodeAll(files).forEach(item -&gt; ...);
+ * }
+ * </pre>
+ *
+ * The input stream is consumed lazily: at most {@code maxInFlight} files are queued or being decoded at
+ * any time, so arbitrarily long inputs do not pile up in memory. The license must be initialized, for
+ * example with {@link NativeBarcodeReader#initLicense(String)}, before decoding.
+ */
+public class BarcodeBatchDecoder implements AutoCloseable {
+
+	private final ExecutorService executor;
+	private final int maxInFlight;
+	private final ConcurrentLinkedQueue<NativeBarcodeReader> readers = new ConcurrentLinkedQueue<>();
+	private final Set<ResultIterator> iterators = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed;
+	private final ThreadLocal<NativeBarcodeReader> threadReader = ThreadLocal.withInitial(() -> {
+		NativeBarcodeReader reader = new NativeBarcodeReader();
+		readers.add(reader);
+		return reader;
+	});
+
+	/**
+	 * Creates a decoder with one worker per available processor.
+	 */
+	public BarcodeBatchDecoder() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public BarcodeBatchDecoder(int threads) {
+		this(threads, threads * 2);
+	}
+
+	/**
+	 * @param threads the number of worker threads and so of native reader instances
+	 * @param maxInFlight the maximum number of inputs submitted but not yet consumed
+	 */
+	public BarcodeBatchDecoder(int threads, int maxInFlight) {
+		if (threads < 1 || maxInFlight < threads) {
+			throw new IllegalArgumentException("threads " + threads + ", maxInFlight " + maxInFlight);
+		}
+		this.maxInFlight = maxInFlight;
+		this.executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+	}
+
+	/**
+	 * Decodes all paths in parallel, returning results in completion order.
+	 */
+	public Stream<Item> decodeAll(Stream<Path> paths) {
+		return decodeAll(paths, false);
+	}
+
+	/**
+	 * Decodes all paths in parallel.
+	 *
+	 * @param preserveOrder whether results are returned in input order rather than as soon as they
+	 *            complete. In input order, one slow image holds back the results behind it.
+	 */
+	public Stream<Item> decodeAll(Stream<Path> paths, boolean preserveOrder) {
+		if (closed) {
+			throw new IllegalStateException("BarcodeBatchDecoder is closed");
+		}
+		ResultIterator iterator = new ResultIterator(paths.iterator(), preserveOrder);
+		iterators.add(iterator);
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL | Spliterator.ORDERED),
+						false)
+				.onClose(iterator::cancel).onClose(paths::close);
+	}
+
+	/**
+	 * Stops the worker threads and closes their readers. Decodes in progress are allowed to finish and
+	 * queued ones are cancelled. Streams still being consumed fail with a {@link CancellationException}
+	 * instead of returning the remaining results.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		executor.shutdown();
+		for (ResultIterator iterator : iterators) {
+			iterator.cancelPending();
+		}
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		NativeBarcodeReader reader;
+		while ((reader = readers.poll()) != null) {
+			reader.close();
+		}
+	}
+
+	private Item decode(long index, Path path) {
+		try {
+			return new Item(index, path, threadReader.get().decodeFile(path.toString()), null);
+		} catch (BarcodeReaderException e) {
+			return new Item(index, path, null, e);
+		}
+	}
+
+	private final class ResultIterator implements Iterator<Item> {
+
+		private final Iterator<Path> source;
+		private final boolean preserveOrder;
+		// Also cancelled from close(), on another thread
+		private final ConcurrentLinkedDeque<Future<Item>> pending = new ConcurrentLinkedDeque<>();
+		private final CompletionService<Item> completion = new ExecutorCompletionService<>(executor);
+		private long submitted;
+		private int inFlight;
+
+		ResultIterator(Iterator<Path> source, boolean preserveOrder) {
+			this.source = source;
+			this.preserveOrder = preserveOrder;
+		}
+
+		@Override
+		public boolean hasNext() {
+			fill();
+			if (inFlight == 0) {
+				iterators.remove(this);
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public Item next() {
+			fill();
+			if (inFlight == 0) {
+				throw new NoSuchElementException();
+			}
+			try {
+				Future<Item> future = preserveOrder ? pending.poll() : completion.take();
+				if (!preserveOrder) {
+					pending.remove(future);
+				}
+				inFlight--;
+				return future.get();
+			} catch (CancellationException e) {
+				throw closedException();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancel();
+				throw new CancellationException("Interrupted while waiting for decode results");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+
+		private void fill() {
+			if (closed) {
+				throw closedException();
+			}
+			while (inFlight < maxInFlight && source.hasNext()) {
+				final long index = submitted++;
+				final Path path = source.next();
+				// Ordered results are taken from the head of the pending queue, so they bypass the
+				// completion queue, which would otherwise keep every finished future
+				Callable<Item> task = () -> decode(index, path);
+				try {
+					pending.add(preserveOrder ? executor.submit(task) : completion.submit(task));
+				} catch (RejectedExecutionException e) {
+					throw closedException();
+				}
+				inFlight++;
+			}
+		}
+
+		private CancellationException closedException() {
+			cancel();
+			return new CancellationException("BarcodeBatchDecoder was closed before all results were read");
+		}
+
+		void cancel() {
+			iterators.remove(this);
+			Future<Item> future;
+			while ((future = pending.poll()) != null) {
+				future.cancel(false);
+			}
+			inFlight = 0;
+		}
+
+		/**
+		 * Cancels the decodes that have not started, without touching the iterator's own state. A
+		 * consumer waiting for one of them wakes up with a {@link CancellationException}.
+		 */
+		void cancelPending() {
+			for (Future<Item> future : pending) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	private static final class WorkerThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+		private final int poolNumber = POOL_NUMBER.incrementAndGet();
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "barcode-decoder-" + poolNumber + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * The outcome of decoding one input.
+	 */
+	public static final class Item {
+
+		private final long index;
+		private final Path path;
+		private final BarcodeResult[] results;
+		private final BarcodeReaderException error;
+
+		Item(long index, Path path, BarcodeResult[] results, BarcodeReaderException error) {
+			this.index = index;
+			this.path = path;
+			this.results = results;
+			this.error = error;
+		}
+
+		/** Position of the input in the source stream. */
+		public long getIndex() {
+			return index;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		/** The barcodes found, or {@code null} if decoding failed. */
+		public BarcodeResult[] getResults() {
+			return results;
+		}
+
+		/** The decode error, or {@code null} if decoding succeeded. */
+		public BarcodeReaderException getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.dynamsoft.barcode;
+
+/**
+ * Thrown when a Dynamsoft Barcode Reader call returns a non-zero error code.
+ */
+public class BarcodeReaderException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int errorCode;
+
+	public BarcodeReaderException(int errorCode, String message) {
+		super(message);
+		this.errorCode = errorCode;
+	}
+
+	public int getErrorCode() {
+		return errorCode;
+	}
+}
@@ -0,0 +1,57 @@
+package com.dynamsoft.barcode;
+
+/**
+ * A single barcode found by {@link NativeBarcodeReader}.
+ * 
+ * Instances are created by the native layer and are immutable.
+ */
+public class BarcodeResult {
+
+	private final String text;
+	private final byte[] bytes;
+	private final String format;
+	private final int[] points;
+
+	BarcodeResult(String text, byte[] bytes, String format, int x1, int y1, int x2, int y2, int x3, int y3, int x4,
+			int y4) {
+		this.text = text;
+		this.bytes = bytes;
+		this.format = format;
+		this.points = new int[] { x1, y1, x2, y2, x3, y3, x4, y4 };
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Returns a copy of the raw barcode bytes.
+	 */
+	public byte[] getBytes() {
+		return bytes == null ? new byte[0] : bytes.clone();
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the four localization points as {x1, y1, x2, y2, x3, y3, x4, y4}.
+	 */
+	public int[] getPoints() {
+		return points.clone();
+	}
+
+	public int getX(int index) {
+		return points[index * 2];
+	}
+
+	public int getY(int index) {
+		return points[index * 2 + 1];
+	}
+
+	@Override
+	public String toString() {
+		return format + ": " + text;
+	}
+}
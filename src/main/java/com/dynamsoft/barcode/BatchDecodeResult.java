@@ -0,0 +1,66 @@
+package com.dynamsoft.barcode;
+
+import java.util.Arrays;
+
+/**
+ * Results of {@link NativeBarcodeReader#decodeBatch}. All barcodes are kept in one flat array indexed by
+ * per-image offsets, so a batch of mostly single-barcode images costs three arrays rather than one
+ * array per image.
+ */
+public class BatchDecodeResult {
+
+	private static final BarcodeResult[] EMPTY = new BarcodeResult[0];
+
+	private final BarcodeResult[] results;
+	private final int[] offsets;
+	private final int[] errorCodes;
+
+	BatchDecodeResult(BarcodeResult[] results, int[] offsets, int[] errorCodes) {
+		this.results = results;
+		this.offsets = offsets;
+		this.errorCodes = errorCodes;
+	}
+
+	/** Number of images in the batch. */
+	public int size() {
+		return errorCodes.length;
+	}
+
+	/** Total number of barcodes found across the batch. */
+	public int getTotalResultCount() {
+		return results.length;
+	}
+
+	public int getResultCount(int image) {
+		return offsets[image + 1] - offsets[image];
+	}
+
+	/**
+	 * Returns the barcodes found in the given image, or an empty array if it had none or failed.
+	 */
+	public BarcodeResult[] getResults(int image) {
+		int from = offsets[image];
+		int to = offsets[image + 1];
+		return from == to ? EMPTY : Arrays.copyOfRange(results, from, to);
+	}
+
+	public BarcodeResult getResult(int image, int index) {
+		if (index < 0 || index >= getResultCount(image)) {
+			throw new IndexOutOfBoundsException("index " + index + ", count " + getResultCount(image));
+		}
+		return results[offsets[image] + index];
+	}
+
+	/**
+	 * Returns the native error code for the given image, 0 if it decoded successfully. A failing image
+	 * does not fail the rest of the batch.
+	 */
+	public int getErrorCode(int image) {
+		return errorCodes[image];
+	}
+
+	/** All barcodes of the batch in image order. */
+	public BarcodeResult[] getAllResults() {
+		return results.clone();
+	}
+}
@@ -0,0 +1,278 @@
+package com.dynamsoft.barcode;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decodes with a series of increasingly expensive parameter templates, stopping at the first one that
+ * finds enough barcodes.
+ *
+ * <pre>
+ * DecodeCascade cascade = new DecodeCascade(registry);
+ * reader.setTemplateRegistry(registry);
+ * BarcodeResult[] results = cascade.decodeFile(reader, fileName, 1);
+ * </pre>
+ *
+ * The default stages are {@link Stage#BEST_SPEED}, {@link Stage#BALANCE} and
+ * {@link Stage#BEST_COVERAGE}. When most images decode on the first stage, the cost of the slower ones
+ * is only paid for the few that need them. Per-stage hit rates are available from {@link #getStats()}.
+ *
+ * A stage whose decode fails with a {@link BarcodeReaderException} counts as a miss and the cascade moves
+ * on to the next one. Only a failure of the last stage is thrown, with those of earlier stages attached
+ * as suppressed exceptions.
+ */
+public class DecodeCascade {
+
+	private final Stage[] stages;
+	private final TemplateRegistry registry;
+	private final LongAdder[] attempts;
+	private final LongAdder[] hits;
+	private final LongAdder[] nanos;
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a cascade with the default stages and a registry of its own, available from
+	 * {@link #getTemplateRegistry()}.
+	 */
+	public DecodeCascade() throws BarcodeReaderException {
+		this(new TemplateRegistry());
+	}
+
+	public DecodeCascade(TemplateRegistry registry) throws BarcodeReaderException {
+		this(registry, Stage.BEST_SPEED, Stage.BALANCE, Stage.BEST_COVERAGE);
+	}
+
+	/**
+	 * Registers the stage templates with {@code registry}. Readers used with this cascade must have the
+	 * registry attached.
+	 *
+	 * @param stages the stages in the order they are tried, cheapest first
+	 */
+	public DecodeCascade(TemplateRegistry registry, Stage... stages) throws BarcodeReaderException {
+		if (stages.length == 0) {
+			throw new IllegalArgumentException("No stages");
+		}
+		this.stages = stages.clone();
+		this.registry = registry;
+		this.attempts = new LongAdder[stages.length];
+		this.hits = new LongAdder[stages.length];
+		this.nanos = new LongAdder[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			if (!registry.contains(stages[i].getName())) {
+				registry.register(stages[i].getTemplate());
+			}
+			attempts[i] = new LongAdder();
+			hits[i] = new LongAdder();
+			nanos[i] = new LongAdder();
+		}
+	}
+
+	public TemplateRegistry getTemplateRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Decodes a file, escalating until a stage finds at least {@code expectedCount} barcodes.
+	 *
+	 * @return the results of the first stage that found enough barcodes, or otherwise of the stage that
+	 *         found the most
+	 * @throws BarcodeReaderException if the last stage fails
+	 */
+	public BarcodeResult[] decodeFile(final NativeBarcodeReader reader, final String fileName, int expectedCount)
+			throws BarcodeReaderException {
+		return decode(new StageDecoder() {
+			@Override
+			public BarcodeResult[] decode(String templateName) throws BarcodeReaderException {
+				return reader.decodeFile(fileName, templateName);
+			}
+		}, expectedCount);
+	}
+
+	public BarcodeResult[] decodeFileInMemory(final NativeBarcodeReader reader, final ByteBuffer buffer,
+			int expectedCount) throws BarcodeReaderException {
+		return decode(new StageDecoder() {
+			@Override
+			public BarcodeResult[] decode(String templateName) throws BarcodeReaderException {
+				return reader.decodeFileInMemory(buffer, templateName);
+			}
+		}, expectedCount);
+	}
+
+	public BarcodeResult[] decodeBuffer(final NativeBarcodeReader reader, final ByteBuffer buffer, final int width,
+			final int height, final int stride, final int pixelFormat, int expectedCount)
+			throws BarcodeReaderException {
+		return decode(new StageDecoder() {
+			@Override
+			public BarcodeResult[] decode(String templateName) throws BarcodeReaderException {
+				return reader.decodeBuffer(buffer, width, height, stride, pixelFormat, templateName);
+			}
+		}, expectedCount);
+	}
+
+	public Stats getStats() {
+		long[] stageAttempts = new long[stages.length];
+		long[] stageHits = new long[stages.length];
+		long[] stageNanos = new long[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			stageAttempts[i] = attempts[i].sum();
+			stageHits[i] = hits[i].sum();
+			stageNanos[i] = nanos[i].sum();
+		}
+		return new Stats(stages, stageAttempts, stageHits, stageNanos, misses.sum());
+	}
+
+	private BarcodeResult[] decode(StageDecoder decoder, int expectedCount) throws BarcodeReaderException {
+		BarcodeResult[] best = new BarcodeResult[0];
+		List<BarcodeReaderException> failures = null;
+		for (int i = 0; i < stages.length; i++) {
+			long start = System.nanoTime();
+			BarcodeResult[] results;
+			try {
+				results = decoder.decode(stages[i].getName());
+			} catch (BarcodeReaderException e) {
+				if (i == stages.length - 1) {
+					misses.increment();
+					for (int j = 0; failures != null && j < failures.size(); j++) {
+						e.addSuppressed(failures.get(j));
+					}
+					throw e;
+				}
+				if (failures == null) {
+					failures = new ArrayList<>();
+				}
+				failures.add(e);
+				continue;
+			} finally {
+				nanos[i].add(System.nanoTime() - start);
+				attempts[i].increment();
+			}
+			if (results == null) {
+				continue;
+			}
+			if (results.length >= expectedCount) {
+				hits[i].increment();
+				return results;
+			}
+			if (results.length > best.length) {
+				best = results;
+			}
+		}
+		misses.increment();
+		return best;
+	}
+
+	private interface StageDecoder {
+		BarcodeResult[] decode(String templateName) throws BarcodeReaderException;
+	}
+
+	/**
+	 * A named parameter template used as one step of a cascade.
+	 */
+	public static final class Stage {
+
+		/** Direct scan localization with light deblurring. */
+		public static final Stage BEST_SPEED = new Stage("BestSpeed",
+				"{\"ImageParameter\":{\"Name\":\"BestSpeed\",\"DeblurLevel\":3,\"ExpectedBarcodesCount\":512,"
+						+ "\"LocalizationModes\":[{\"Mode\":\"LM_SCAN_DIRECTLY\"}],"
+						+ "\"TextFilterModes\":[{\"MinImageDimension\":262144,\"Mode\":\"TFM_GENERAL_CONTOUR\"}]}}");
+
+		/** Connected blocks and statistics localization with moderate deblurring. */
+		public static final Stage BALANCE = new Stage("Balance",
+				"{\"ImageParameter\":{\"Name\":\"Balance\",\"DeblurLevel\":5,\"ExpectedBarcodesCount\":512,"
+						+ "\"LocalizationModes\":[{\"Mode\":\"LM_CONNECTED_BLOCKS\"},{\"Mode\":\"LM_STATISTICS\"}]}}");
+
+		/** Every localization mode, full deblurring and inverted images. */
+		public static final Stage BEST_COVERAGE = new Stage("BestCoverage",
+				"{\"ImageParameter\":{\"Name\":\"BestCoverage\",\"DeblurLevel\":9,\"ExpectedBarcodesCount\":512,"
+						+ "\"ScaleDownThreshold\":100000,\"LocalizationModes\":[{\"Mode\":\"LM_CONNECTED_BLOCKS\"},"
+						+ "{\"Mode\":\"LM_SCAN_DIRECTLY\"},{\"Mode\":\"LM_STATISTICS\"},{\"Mode\":\"LM_LINES\"},"
+						+ "{\"Mode\":\"LM_STATISTICS_MARKS\"}],\"GrayscaleTransformationModes\":"
+						+ "[{\"Mode\":\"GTM_ORIGINAL\"},{\"Mode\":\"GTM_INVERTED\"}]}}");
+
+		private final String name;
+		private final String template;
+
+		/**
+		 * @param name the template name defined by {@code template}
+		 * @param template a JSON parameter template
+		 */
+		public Stage(String name, String template) {
+			this.name = name;
+			this.template = template;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getTemplate() {
+			return template;
+		}
+	}
+
+	/**
+	 * A point-in-time snapshot of how often each stage was run and how often it was the last one needed.
+	 */
+	public static final class Stats {
+
+		private final Stage[] stages;
+		private final long[] attempts;
+		private final long[] hits;
+		private final long[] nanos;
+		private final long misses;
+
+		Stats(Stage[] stages, long[] attempts, long[] hits, long[] nanos, long misses) {
+			this.stages = stages;
+			this.attempts = attempts;
+			this.hits = hits;
+			this.nanos = nanos;
+			this.misses = misses;
+		}
+
+		public int getStageCount() {
+			return stages.length;
+		}
+
+		public String getStageName(int stage) {
+			return stages[stage].getName();
+		}
+
+		/** Number of decodes that ran this stage. */
+		public long getAttempts(int stage) {
+			return attempts[stage];
+		}
+
+		/** Number of decodes that found enough barcodes at this stage. */
+		public long getHits(int stage) {
+			return hits[stage];
+		}
+
+		/** Hits as a fraction of all decodes that reached this stage. */
+		public double getHitRate(int stage) {
+			return attempts[stage] == 0 ? 0 : (double) hits[stage] / attempts[stage];
+		}
+
+		public long getTotalNanos(int stage) {
+			return nanos[stage];
+		}
+
+		/** Number of decodes that ran every stage without finding enough barcodes. */
+		public long getMisses() {
+			return misses;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < stages.length; i++) {
+				sb.append(stages[i].getName()).append(": attempts=").append(attempts[i]).append(", hits=")
+						.append(hits[i]).append(", totalMs=").append(TimeUnit.NANOSECONDS.toMillis(nanos[i]))
+						.append("; ");
+			}
+			return sb.append("misses=").append(misses).toString();
+		}
+	}
+}
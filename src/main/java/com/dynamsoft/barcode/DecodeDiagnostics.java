@@ -0,0 +1,181 @@
+package com.dynamsoft.barcode;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing and stage output of a single decode, returned by {@link NativeBarcodeReader#getLastDiagnostics()}
+ * once {@link NativeBarcodeReader#setDiagnosticsEnabled(boolean)} is on.
+ *
+ * The time of the decode call is split into the DBR call itself, the conversion of its results into
+ * {@link BarcodeResult}s, and the JNI marshalling around both. Stage output comes from the intermediate
+ * results kept by the decode: regions predetected, binarization passes and localized barcode zones, each
+ * with the modes that produced them. Comparing those between slow and fast images shows whether
+ * localization or binarization is where a template spends its time.
+ */
+public final class DecodeDiagnostics {
+
+	/** The intermediate results kept while diagnostics are enabled. */
+	static final int STAGE_TYPES = EnumIntermediateResultType.IRT_PREDETECTED_REGION
+			| EnumIntermediateResultType.IRT_BINARIZED_IMAGE | EnumIntermediateResultType.IRT_TYPED_BARCODE_ZONE;
+
+	private final String templateName;
+	private final int returnCode;
+	private final int resultCount;
+	private final long totalNanos;
+	private final long decodeNanos;
+	private final long collectNanos;
+	private final int[] stages;
+
+	/**
+	 * @param timing total, DBR call and result conversion nanos, as reported by the JNI layer
+	 * @param stages a (type, item count, mode) triple per intermediate result
+	 */
+	DecodeDiagnostics(String templateName, int returnCode, int resultCount, long[] timing, int[] stages) {
+		this.templateName = templateName;
+		this.returnCode = returnCode;
+		this.resultCount = resultCount;
+		this.totalNanos = timing[0];
+		this.decodeNanos = timing[1];
+		this.collectNanos = timing[2];
+		this.stages = stages;
+	}
+
+	public String getTemplateName() {
+		return templateName;
+	}
+
+	/** The DBR error code of the decode, 0 on success. */
+	public int getReturnCode() {
+		return returnCode;
+	}
+
+	public int getResultCount() {
+		return resultCount;
+	}
+
+	/** Time spent in the decode native, from entry to return. */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/** Time spent in the DBR decode call. */
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	/** Time spent fetching the text results and converting them into Java objects. */
+	public long getResultConversionNanos() {
+		return collectNanos;
+	}
+
+	/** Time spent in the JNI layer outside the decode and conversion: strings, input copies and cleanup. */
+	public long getMarshallingNanos() {
+		return Math.max(0, totalNanos - decodeNanos - collectNanos);
+	}
+
+	/** The {@link EnumIntermediateResultType} flags of all stages that produced output. */
+	public int getStageTypes() {
+		int types = 0;
+		for (int i = 0; i < stages.length; i += 3) {
+			types |= stages[i];
+		}
+		return types;
+	}
+
+	/**
+	 * Number of passes that produced output of one type, for example one per binarization mode tried.
+	 */
+	public int getPasses(int resultType) {
+		int passes = 0;
+		for (int i = 0; i < stages.length; i += 3) {
+			if (stages[i] == resultType) {
+				passes++;
+			}
+		}
+		return passes;
+	}
+
+	/** Number of items of one type across all passes, for example localized zones. */
+	public int getItems(int resultType) {
+		int items = 0;
+		for (int i = 0; i < stages.length; i += 3) {
+			if (stages[i] == resultType) {
+				items += stages[i + 1];
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * The distinct modes whose passes produced output of one type, in the order they ran: region
+	 * predetection modes for {@link EnumIntermediateResultType#IRT_PREDETECTED_REGION}, binarization modes
+	 * for {@link EnumIntermediateResultType#IRT_BINARIZED_IMAGE} and localization modes for
+	 * {@link EnumIntermediateResultType#IRT_TYPED_BARCODE_ZONE}.
+	 */
+	public int[] getModes(int resultType) {
+		int[] modes = new int[stages.length / 3];
+		int count = 0;
+		for (int i = 0; i < stages.length; i += 3) {
+			if (stages[i] == resultType && indexOf(modes, count, stages[i + 2]) < 0) {
+				modes[count++] = stages[i + 2];
+			}
+		}
+		return Arrays.copyOf(modes, count);
+	}
+
+	/**
+	 * Number of recognition attempts: every localized barcode zone is handed to recognition once, whether
+	 * or not it decodes. DBR reports no other attempt count; a low result count against many attempts
+	 * points at recognition and deblurring rather than localization.
+	 */
+	public int getDecodeAttempts() {
+		return getLocalizedZoneCount();
+	}
+
+	/**
+	 * Number of recognition attempts on zones found by one DBR {@code LocalizationMode}, showing which
+	 * localization stage feeds recognition.
+	 */
+	public int getDecodeAttempts(int localizationMode) {
+		int attempts = 0;
+		for (int i = 0; i < stages.length; i += 3) {
+			if (stages[i] == EnumIntermediateResultType.IRT_TYPED_BARCODE_ZONE && stages[i + 2] == localizationMode) {
+				attempts += stages[i + 1];
+			}
+		}
+		return attempts;
+	}
+
+	public int getPredetectedRegionCount() {
+		return getItems(EnumIntermediateResultType.IRT_PREDETECTED_REGION);
+	}
+
+	public int getBinarizationPasses() {
+		return getPasses(EnumIntermediateResultType.IRT_BINARIZED_IMAGE);
+	}
+
+	/** Number of barcode zones localized and handed to recognition. */
+	public int getLocalizedZoneCount() {
+		return getItems(EnumIntermediateResultType.IRT_TYPED_BARCODE_ZONE);
+	}
+
+	private static int indexOf(int[] values, int length, int value) {
+		for (int i = 0; i < length; i++) {
+			if (values[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "template=" + templateName + ", returnCode=" + returnCode + ", results=" + resultCount + ", totalUs="
+				+ TimeUnit.NANOSECONDS.toMicros(totalNanos) + ", decodeUs="
+				+ TimeUnit.NANOSECONDS.toMicros(decodeNanos) + ", conversionUs="
+				+ TimeUnit.NANOSECONDS.toMicros(collectNanos) + ", regions=" + getPredetectedRegionCount()
+				+ ", binarizationPasses=" + getBinarizationPasses() + ", zones=" + getLocalizedZoneCount()
+				+ ", decodeAttempts=" + getDecodeAttempts();
+	}
+}
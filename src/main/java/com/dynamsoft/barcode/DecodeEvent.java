@@ -0,0 +1,78 @@
+package com.dynamsoft.barcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event emitted for every decode of a {@link NativeBarcodeReader}. Disabled by default; enable it in
+ * a recording with {@code jfr configure} or a {@code .jfc} setting for {@code com.dynamsoft.barcode.Decode}.
+ * While disabled, an event is never committed and its fields are never filled in.
+ */
+@Name("com.dynamsoft.barcode.Decode")
+@Label("Barcode Decode")
+@Category({ "Dynamsoft", "Barcode Reader" })
+@Description("A call into the native barcode decoder")
+@Enabled(false)
+@StackTrace(false)
+final class DecodeEvent extends Event {
+
+	@Label("Input Kind")
+	@Description("file, memory, buffer, intermediate, or the batch and region variants")
+	String kind;
+
+	@Label("Width")
+	@Description("Image width in pixels, or 0 for encoded inputs")
+	int width;
+
+	@Label("Height")
+	@Description("Image height in pixels, or 0 for encoded inputs")
+	int height;
+
+	@Label("Template")
+	String template;
+
+	@Label("Input Size")
+	@DataAmount
+	long bytes;
+
+	@Label("Return Code")
+	@Description("The DBR error code, 0 on success")
+	int returnCode;
+
+	@Label("Result Count")
+	int resultCount;
+
+	/**
+	 * Starts timing a decode, returning {@code null} when the event is disabled.
+	 */
+	static Object start() {
+		DecodeEvent event = new DecodeEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object started, String kind, int width, int height, String template, long bytes,
+			int returnCode, int resultCount) {
+		DecodeEvent event = (DecodeEvent) started;
+		event.end();
+		if (event.shouldCommit()) {
+			event.kind = kind;
+			event.width = width;
+			event.height = height;
+			event.template = template;
+			event.bytes = bytes;
+			event.returnCode = returnCode;
+			event.resultCount = resultCount;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package com.dynamsoft.barcode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-template decode statistics: a latency histogram, decode, barcode and empty-result counts, error
+ * counts by DBR error code, and bytes processed.
+ *
+ * <pre>
+ * DecodeMetrics metrics = new DecodeMetrics();
+ * metrics.registerMBean("orders");
+ * pool.setDecodeMetrics(metrics);
+ * ...
+ * response.write(metrics.toPrometheusText());
+ * </pre>
+ *
+ * Recording is lock-free and safe from any number of readers. The metrics are published through
+ * {@link #registerMBean(String)} as a {@link DecodeMetricsMXBean} and in the Prometheus text exposition
+ * format by {@link #writePrometheus(Appendable)}.
+ */
+public class DecodeMetrics implements DecodeMetricsMXBean {
+
+	/** Upper bounds of the latency buckets, in seconds. */
+	private static final double[] BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5,
+			10 };
+	private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+	static {
+		for (int i = 0; i < BUCKETS.length; i++) {
+			BUCKET_NANOS[i] = (long) (BUCKETS[i] * 1e9);
+		}
+	}
+
+	// Replaced as a whole by reset(), so recorders and readers each see one generation
+	private volatile ConcurrentHashMap<String, TemplateMetrics> templates = new ConcurrentHashMap<>();
+	private ObjectName objectName;
+
+	/**
+	 * Records a successful decode.
+	 *
+	 * @param bytes the size of the input, or 0 if unknown
+	 */
+	public void record(String templateName, long nanos, int resultCount, long bytes) {
+		TemplateMetrics metrics = forTemplate(templateName);
+		metrics.observe(nanos, bytes);
+		metrics.barcodes.add(resultCount);
+		if (resultCount == 0) {
+			metrics.empties.increment();
+		}
+	}
+
+	/**
+	 * Records a decode that failed with a DBR error code.
+	 */
+	public void recordError(String templateName, long nanos, int errorCode, long bytes) {
+		TemplateMetrics metrics = forTemplate(templateName);
+		metrics.observe(nanos, bytes);
+		metrics.errors.computeIfAbsent(errorCode, code -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Starts counting from zero. The statistics are swapped for empty ones in a single step, so readers
+	 * never see a half-cleared set. A decode that finishes while the reset runs is either counted in full
+	 * after it or dropped with the old statistics, never split between them.
+	 */
+	public void reset() {
+		templates = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public long getDecodeCount() {
+		long total = 0;
+		for (TemplateMetrics metrics : templates.values()) {
+			total += metrics.count.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public long getBarcodeCount() {
+		long total = 0;
+		for (TemplateMetrics metrics : templates.values()) {
+			total += metrics.barcodes.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public long getEmptyCount() {
+		long total = 0;
+		for (TemplateMetrics metrics : templates.values()) {
+			total += metrics.empties.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public long getErrorCount() {
+		long total = 0;
+		for (TemplateMetrics metrics : templates.values()) {
+			total += metrics.errorCount();
+		}
+		return total;
+	}
+
+	@Override
+	public long getBytesProcessed() {
+		long total = 0;
+		for (TemplateMetrics metrics : templates.values()) {
+			total += metrics.bytes.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public double getMeanLatencyMillis() {
+		long count = 0;
+		long nanos = 0;
+		for (TemplateMetrics metrics : templates.values()) {
+			count += metrics.count.sum();
+			nanos += metrics.nanos.sum();
+		}
+		return count == 0 ? 0 : nanos / 1e6 / count;
+	}
+
+	@Override
+	public Map<String, Long> getDecodeCountByTemplate() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (Map.Entry<String, TemplateMetrics> entry : templates.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().count.sum());
+		}
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getMeanLatencyMillisByTemplate() {
+		Map<String, Double> latencies = new TreeMap<>();
+		for (Map.Entry<String, TemplateMetrics> entry : templates.entrySet()) {
+			long count = entry.getValue().count.sum();
+			latencies.put(entry.getKey(), count == 0 ? 0 : entry.getValue().nanos.sum() / 1e6 / count);
+		}
+		return latencies;
+	}
+
+	@Override
+	public Map<Integer, Long> getErrorCountByCode() {
+		Map<Integer, Long> counts = new TreeMap<>();
+		for (TemplateMetrics metrics : templates.values()) {
+			for (Map.Entry<Integer, LongAdder> entry : metrics.errors.entrySet()) {
+				counts.merge(entry.getKey(), entry.getValue().sum(), Long::sum);
+			}
+		}
+		return counts;
+	}
+
+	@Override
+	public String getPrometheusText() {
+		return toPrometheusText();
+	}
+
+	/**
+	 * Registers this instance with the platform MBean server as
+	 * {@code com.dynamsoft.barcode:type=DecodeMetrics,name=<name>}.
+	 */
+	public synchronized void registerMBean(String name) throws JMException {
+		if (objectName != null) {
+			throw new InstanceAlreadyExistsException(objectName.toString());
+		}
+		ObjectName objectName = new ObjectName("com.dynamsoft.barcode:type=DecodeMetrics,name="
+				+ ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.objectName = objectName;
+	}
+
+	public synchronized void unregisterMBean() throws JMException {
+		if (objectName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+
+	public String toPrometheusText() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			writePrometheus(sb);
+		} catch (IOException e) {
+			// StringBuilder does not throw
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the metrics in the Prometheus text exposition format, version 0.0.4.
+	 */
+	public void writePrometheus(Appendable out) throws IOException {
+		Map<String, TemplateMetrics> sorted = new TreeMap<>(templates);
+
+		header(out, "dbr_decode_duration_seconds", "histogram", "Decode latency by parameter template.");
+		for (Map.Entry<String, TemplateMetrics> entry : sorted.entrySet()) {
+			String template = label(entry.getKey());
+			TemplateMetrics metrics = entry.getValue();
+			long cumulative = 0;
+			for (int i = 0; i < BUCKETS.length; i++) {
+				cumulative += metrics.buckets[i].sum();
+				out.append("dbr_decode_duration_seconds_bucket{template=\"").append(template).append("\",le=\"")
+						.append(Double.toString(BUCKETS[i])).append("\"} ").append(Long.toString(cumulative))
+						.append('\n');
+			}
+			cumulative += metrics.buckets[BUCKETS.length].sum();
+			out.append("dbr_decode_duration_seconds_bucket{template=\"").append(template).append("\",le=\"+Inf\"} ")
+					.append(Long.toString(cumulative)).append('\n');
+			out.append("dbr_decode_duration_seconds_sum{template=\"").append(template).append("\"} ")
+					.append(Double.toString(metrics.nanos.sum() / 1e9)).append('\n');
+			out.append("dbr_decode_duration_seconds_count{template=\"").append(template).append("\"} ")
+					.append(Long.toString(cumulative)).append('\n');
+		}
+
+		header(out, "dbr_decode_barcodes_total", "counter", "Barcodes found.");
+		for (Map.Entry<String, TemplateMetrics> entry : sorted.entrySet()) {
+			sample(out, "dbr_decode_barcodes_total", entry.getKey(), entry.getValue().barcodes.sum());
+		}
+		header(out, "dbr_decode_empty_total", "counter", "Decodes that found no barcode.");
+		for (Map.Entry<String, TemplateMetrics> entry : sorted.entrySet()) {
+			sample(out, "dbr_decode_empty_total", entry.getKey(), entry.getValue().empties.sum());
+		}
+		header(out, "dbr_decode_bytes_total", "counter", "Input bytes decoded.");
+		for (Map.Entry<String, TemplateMetrics> entry : sorted.entrySet()) {
+			sample(out, "dbr_decode_bytes_total", entry.getKey(), entry.getValue().bytes.sum());
+		}
+
+		header(out, "dbr_decode_errors_total", "counter", "Failed decodes by DBR error code.");
+		for (Map.Entry<String, TemplateMetrics> entry : sorted.entrySet()) {
+			String template = label(entry.getKey());
+			for (Map.Entry<Integer, LongAdder> error : new TreeMap<>(entry.getValue().errors).entrySet()) {
+				out.append("dbr_decode_errors_total{template=\"").append(template).append("\",code=\"")
+						.append(Integer.toString(error.getKey())).append("\"} ")
+						.append(Long.toString(error.getValue().sum())).append('\n');
+			}
+		}
+	}
+
+	private TemplateMetrics forTemplate(String templateName) {
+		String key = templateName == null ? "" : templateName;
+		ConcurrentHashMap<String, TemplateMetrics> current = templates;
+		TemplateMetrics metrics = current.get(key);
+		if (metrics == null) {
+			metrics = current.computeIfAbsent(key, name -> new TemplateMetrics());
+		}
+		return metrics;
+	}
+
+	private static void header(Appendable out, String name, String type, String help) throws IOException {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(Appendable out, String name, String template, long value) throws IOException {
+		out.append(name).append("{template=\"").append(label(template)).append("\"} ").append(Long.toString(value))
+				.append('\n');
+	}
+
+	private static String label(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static final class TemplateMetrics {
+
+		final LongAdder count = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final LongAdder barcodes = new LongAdder();
+		final LongAdder empties = new LongAdder();
+		final LongAdder bytes = new LongAdder();
+		final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+		final ConcurrentHashMap<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+		TemplateMetrics() {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		void observe(long nanos, long bytes) {
+			count.increment();
+			this.nanos.add(nanos);
+			this.bytes.add(bytes);
+			int bucket = 0;
+			while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+				bucket++;
+			}
+			buckets[bucket].increment();
+		}
+
+		long errorCount() {
+			long total = 0;
+			for (LongAdder adder : errors.values()) {
+				total += adder.sum();
+			}
+			return total;
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.dynamsoft.barcode;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link DecodeMetrics}. Totals cover all parameter templates; the default template is
+ * reported under the empty name.
+ */
+public interface DecodeMetricsMXBean {
+
+	long getDecodeCount();
+
+	long getBarcodeCount();
+
+	/** Number of successful decodes that found no barcode. */
+	long getEmptyCount();
+
+	long getErrorCount();
+
+	long getBytesProcessed();
+
+	double getMeanLatencyMillis();
+
+	Map<String, Long> getDecodeCountByTemplate();
+
+	Map<String, Double> getMeanLatencyMillisByTemplate();
+
+	Map<Integer, Long> getErrorCountByCode();
+
+	/** The same metrics in the Prometheus text exposition format. */
+	String getPrometheusText();
+}
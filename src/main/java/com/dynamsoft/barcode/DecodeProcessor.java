@@ -0,0 +1,310 @@
+package com.dynamsoft.barcode;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A {@link Flow.Processor} that decodes the images published upstream with readers from a
+ * {@link NativeBarcodeReaderPool} and publishes a {@link Result} for each of them.
+ *
+ * <pre>
+ * DecodeProcessor&lt;Path&gt; processor = new DecodeProcessor&lt;&gt;(pool, DecodeProcessor.files(""));
+ * spool.subscribe(processor);
+ * processor.subscribe(resultSubscriber);
+ * </pre>
+ *
+ * At most {@code maxInFlight} images are requested from upstream and not yet delivered downstream,
+ * whether they are being decoded or waiting for downstream demand. A slow subscriber therefore slows
+ * the publisher down instead of letting images pile up in memory. Images are decoded concurrently
+ * through {@link NativeBarcodeReaderPool#decodeAsync(DecodeTask)} and results are published in the
+ * order their decodes complete.
+ *
+ * A failed decode is published as a {@link Result} carrying the error and does not end the stream.
+ * Upstream completion and errors are passed on once every image already received has been delivered.
+ * The processor accepts a single subscriber.
+ *
+ * @param <T> the type of image published upstream
+ */
+public class DecodeProcessor<T> implements Flow.Processor<T, DecodeProcessor.Result<T>> {
+
+	private final Function<DecodeTask, CompletableFuture<BarcodeResult[]>> decodeAsync;
+	private final ImageDecoder<T> decoder;
+	private final int maxInFlight;
+
+	private final ConcurrentLinkedQueue<Result<T>> completed = new ConcurrentLinkedQueue<Result<T>>();
+	private final AtomicInteger wip = new AtomicInteger();
+	private final AtomicLong requested = new AtomicLong();
+	private final AtomicLong received = new AtomicLong();
+
+	private volatile Flow.Subscription upstream;
+	private volatile Flow.Subscriber<? super Result<T>> downstream;
+	private boolean subscribed;
+	private volatile boolean upstreamDone;
+	private volatile Throwable upstreamError;
+	private volatile boolean cancelled;
+	private volatile Throwable requestError;
+
+	// Only accessed from drain()
+	private long upstreamRequested;
+	private long emitted;
+	private boolean terminated;
+
+	/**
+	 * Creates a processor keeping as many images in flight as the pool has instances.
+	 */
+	public DecodeProcessor(NativeBarcodeReaderPool pool, ImageDecoder<T> decoder) {
+		this(pool, decoder, pool.getMaxInstances());
+	}
+
+	/**
+	 * @param maxInFlight the most images requested from upstream and not yet delivered downstream
+	 */
+	public DecodeProcessor(NativeBarcodeReaderPool pool, ImageDecoder<T> decoder, int maxInFlight) {
+		this(Objects.requireNonNull(pool)::decodeAsync, decoder, maxInFlight);
+	}
+
+	/**
+	 * @param decodeAsync runs a decode with a borrowed reader, as {@link NativeBarcodeReaderPool#decodeAsync}
+	 *            does
+	 */
+	DecodeProcessor(Function<DecodeTask, CompletableFuture<BarcodeResult[]>> decodeAsync, ImageDecoder<T> decoder,
+			int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+		}
+		this.decodeAsync = Objects.requireNonNull(decodeAsync);
+		this.decoder = Objects.requireNonNull(decoder);
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Decodes image files with {@link NativeBarcodeReader#decodeFile(String, String)}.
+	 */
+	public static ImageDecoder<Path> files(final String templateName) {
+		return (reader, file) -> reader.decodeFile(file.toString(), templateName);
+	}
+
+	/**
+	 * Decodes encoded images held in arrays.
+	 */
+	public static ImageDecoder<byte[]> encodedImages(final String templateName) {
+		return (reader, data) -> reader.decodeFileInMemory(data, 0, data.length, templateName);
+	}
+
+	/**
+	 * Decodes encoded images held in direct buffers, without copying them.
+	 */
+	public static ImageDecoder<ByteBuffer> directBuffers(final String templateName) {
+		return (reader, buffer) -> reader.decodeFileInMemory(buffer, templateName);
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Result<T>> subscriber) {
+		Objects.requireNonNull(subscriber);
+		boolean first;
+		synchronized (this) {
+			first = !subscribed;
+			subscribed = true;
+		}
+		if (first) {
+			// Published only once onSubscribe has returned, so no signal can overtake it
+			subscriber.onSubscribe(new Downstream());
+			downstream = subscriber;
+			drain();
+			return;
+		}
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+			}
+
+			@Override
+			public void cancel() {
+			}
+		});
+		subscriber.onError(new IllegalStateException("DecodeProcessor allows only one subscriber"));
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription);
+		synchronized (this) {
+			if (upstream != null || cancelled) {
+				subscription.cancel();
+				return;
+			}
+			upstream = subscription;
+		}
+		drain();
+	}
+
+	@Override
+	public void onNext(final T image) {
+		received.incrementAndGet();
+		decodeAsync.apply(reader -> decoder.decode(reader, image)).whenComplete((results, error) -> {
+			if (!cancelled) {
+				completed.add(new Result<T>(image, results, unwrap(error)));
+			}
+			drain();
+		});
+	}
+
+	@Override
+	public void onError(Throwable error) {
+		upstreamError = Objects.requireNonNull(error);
+		upstreamDone = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+
+	/**
+	 * Delivers completed results against downstream demand, tops up upstream demand and passes on
+	 * termination. Runs on whichever thread calls it, one thread at a time.
+	 */
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			Flow.Subscriber<? super Result<T>> subscriber = downstream;
+			Flow.Subscription subscription = upstream;
+			if (terminated) {
+				completed.clear();
+			} else if (cancelled) {
+				completed.clear();
+				terminated = true;
+			} else if (subscriber != null && requestError != null) {
+				terminated = true;
+				completed.clear();
+				if (subscription != null) {
+					subscription.cancel();
+				}
+				subscriber.onError(requestError);
+			} else if (subscriber != null) {
+				long demand = requested.get();
+				long delivered = 0;
+				Result<T> result;
+				while (delivered < demand && (result = completed.poll()) != null) {
+					subscriber.onNext(result);
+					delivered++;
+				}
+				if (delivered > 0) {
+					emitted += delivered;
+					requested.addAndGet(-delivered);
+				}
+
+				// Read the flag before the count, so every image received before completion is counted
+				boolean done = upstreamDone;
+				if (done && received.get() == emitted) {
+					terminated = true;
+					Throwable upstreamFailure = upstreamError;
+					if (upstreamFailure != null) {
+						subscriber.onError(upstreamFailure);
+					} else {
+						subscriber.onComplete();
+					}
+				} else if (!done && subscription != null) {
+					long more = maxInFlight - (upstreamRequested - emitted);
+					if (more > 0) {
+						upstreamRequested += more;
+						subscription.request(more);
+					}
+				}
+			}
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private static Throwable unwrap(Throwable error) {
+		return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+	}
+
+	/**
+	 * Decodes one image of a {@link DecodeProcessor} with a borrowed reader.
+	 */
+	public interface ImageDecoder<T> {
+
+		BarcodeResult[] decode(NativeBarcodeReader reader, T image) throws BarcodeReaderException;
+	}
+
+	/**
+	 * The outcome of decoding one image: its results or the error that stopped the decode.
+	 */
+	public static final class Result<T> {
+
+		private final T image;
+		private final BarcodeResult[] results;
+		private final Throwable error;
+
+		Result(T image, BarcodeResult[] results, Throwable error) {
+			this.image = image;
+			this.results = error == null && results == null ? new BarcodeResult[0] : results;
+			this.error = error;
+		}
+
+		public T getImage() {
+			return image;
+		}
+
+		/**
+		 * Returns the barcodes found, or {@code null} if the decode failed.
+		 */
+		public BarcodeResult[] getResults() {
+			return results;
+		}
+
+		/**
+		 * Returns why the decode failed, usually a {@link BarcodeReaderException}, or {@code null} if it
+		 * succeeded.
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+	}
+
+	private final class Downstream implements Flow.Subscription {
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				requestError = new IllegalArgumentException("Non-positive request: " + n);
+			} else {
+				long current;
+				long next;
+				do {
+					current = requested.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!requested.compareAndSet(current, next));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			Flow.Subscription subscription = upstream;
+			if (subscription != null) {
+				subscription.cancel();
+			}
+			drain();
+		}
+	}
+}
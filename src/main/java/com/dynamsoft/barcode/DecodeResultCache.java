@@ -0,0 +1,321 @@
+package com.dynamsoft.barcode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of decode results keyed by the content of the encoded image, the template name and the
+ * settings of the reader.
+ *
+ * <pre>
+ * DecodeResultCache cache = new DecodeResultCache(1024);
+ * BarcodeResult[] results = cache.decodeFileInMemory(reader, upload.getBytes(), "");
+ * </pre>
+ *
+ * Inputs are identified by a 128-bit MurmurHash3 of their bytes, so a repeated upload of the same image
+ * is answered without decoding it again. The least recently used entry is evicted once the cache is
+ * full. The key includes a fingerprint of the template strings loaded into the reader, whether through
+ * {@link NativeBarcodeReader#initRuntimeSettingsWithString(String, int)} or from an attached
+ * {@link TemplateRegistry}, and of its intermediate result types. Results are therefore only shared
+ * between readers loaded with the same settings, and changing the settings never serves results decoded
+ * with the old ones. Failed decodes are not cached.
+ *
+ * The cache is thread-safe and may be shared by many readers. When several threads miss on the same
+ * input at once, one of them decodes it and the others wait for its results.
+ */
+public class DecodeResultCache {
+
+	private final int maxEntries;
+	private final LinkedHashMap<Key, BarcodeResult[]> entries;
+	// Decodes in progress, completed with their results or with null if they failed
+	private final ConcurrentHashMap<Key, CompletableFuture<BarcodeResult[]>> inFlight = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxEntries the number of inputs whose results are kept
+	 */
+	public DecodeResultCache(final int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<Key, BarcodeResult[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, BarcodeResult[]> eldest) {
+				if (size() > maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public BarcodeResult[] decodeFileInMemory(NativeBarcodeReader reader, byte[] data) throws BarcodeReaderException {
+		return decodeFileInMemory(reader, data, "");
+	}
+
+	/**
+	 * Returns the cached results for {@code data}, or decodes it with {@code reader} and caches the
+	 * results.
+	 */
+	public BarcodeResult[] decodeFileInMemory(NativeBarcodeReader reader, byte[] data, String templateName)
+			throws BarcodeReaderException {
+		Key key = key(reader, ByteBuffer.wrap(data), templateName);
+		return getOrDecode(key, () -> reader.decodeFileInMemory(data, 0, data.length, templateName));
+	}
+
+	/**
+	 * Same as {@link #decodeFileInMemory(NativeBarcodeReader, byte[], String)} for the remaining bytes
+	 * of a direct buffer. The buffer position is not changed.
+	 */
+	public BarcodeResult[] decodeFileInMemory(NativeBarcodeReader reader, ByteBuffer buffer, String templateName)
+			throws BarcodeReaderException {
+		Key key = key(reader, buffer.duplicate(), templateName);
+		return getOrDecode(key, () -> reader.decodeFileInMemory(buffer, templateName));
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public Stats getStats() {
+		return new Stats(hits.sum(), misses.sum(), evictions.sum(), size(), maxEntries);
+	}
+
+	/**
+	 * Returns a copy of the cached results for {@code key}, of those of a decode of the same key already
+	 * running on another thread, or of the results of {@code decoder}. Waiting for another thread counts
+	 * as a hit; if that decode fails, this thread decodes on its own.
+	 */
+	BarcodeResult[] getOrDecode(Key key, CachedDecode decoder) throws BarcodeReaderException {
+		BarcodeResult[] results = get(key);
+		CompletableFuture<BarcodeResult[]> flight = null;
+		if (results == null) {
+			flight = new CompletableFuture<>();
+			CompletableFuture<BarcodeResult[]> leader = inFlight.putIfAbsent(key, flight);
+			if (leader != null) {
+				flight = null;
+				results = leader.join();
+			} else {
+				// The previous decode of this key may have finished between the lookup and the claim
+				results = get(key);
+			}
+		}
+		if (results != null) {
+			if (flight != null) {
+				inFlight.remove(key, flight);
+				flight.complete(results);
+			}
+			hits.increment();
+			return results.clone();
+		}
+
+		misses.increment();
+		try {
+			results = decoder.decode();
+			if (results != null) {
+				synchronized (entries) {
+					entries.put(key, results.clone());
+				}
+			}
+			return results == null ? null : results.clone();
+		} finally {
+			if (flight != null) {
+				inFlight.remove(key, flight);
+				flight.complete(results);
+			}
+		}
+	}
+
+	private BarcodeResult[] get(Key key) {
+		synchronized (entries) {
+			return entries.get(key);
+		}
+	}
+
+	private static Key key(NativeBarcodeReader reader, ByteBuffer data, String templateName)
+			throws BarcodeReaderException {
+		long settings = reader.settingsFingerprint();
+		int length = data.remaining();
+		long[] hash = murmur3(data.order(ByteOrder.LITTLE_ENDIAN), 0);
+		return new Key(hash[0], hash[1], length, templateName == null ? "" : templateName, settings);
+	}
+
+	/**
+	 * MurmurHash3 x64 128-bit over the remaining bytes of {@code data}, which is consumed.
+	 */
+	static long[] murmur3(ByteBuffer data, long seed) {
+		final long c1 = 0x87c37b91114253d5L;
+		final long c2 = 0x4cf5ad432745937fL;
+		long h1 = seed;
+		long h2 = seed;
+		long length = data.remaining();
+
+		while (data.remaining() >= 16) {
+			long k1 = data.getLong();
+			long k2 = data.getLong();
+
+			h1 ^= mixK1(k1, c1, c2);
+			h1 = Long.rotateLeft(h1, 27) + h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			h2 ^= mixK2(k2, c1, c2);
+			h2 = Long.rotateLeft(h2, 31) + h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+
+		long k1 = 0;
+		long k2 = 0;
+		int tail = data.remaining();
+		int start = data.position();
+		for (int i = tail - 1; i >= 8; i--) {
+			k2 = (k2 << 8) | (data.get(start + i) & 0xff);
+		}
+		for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+			k1 = (k1 << 8) | (data.get(start + i) & 0xff);
+		}
+		data.position(start + tail);
+		if (tail > 8) {
+			h2 ^= mixK2(k2, c1, c2);
+		}
+		if (tail > 0) {
+			h1 ^= mixK1(k1, c1, c2);
+		}
+
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+		return new long[] { h1, h2 };
+	}
+
+	private static long mixK1(long k1, long c1, long c2) {
+		return Long.rotateLeft(k1 * c1, 31) * c2;
+	}
+
+	private static long mixK2(long k2, long c1, long c2) {
+		return Long.rotateLeft(k2 * c2, 33) * c1;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+	interface CachedDecode {
+		BarcodeResult[] decode() throws BarcodeReaderException;
+	}
+
+	static final class Key {
+
+		private final long hash1;
+		private final long hash2;
+		private final int length;
+		private final String templateName;
+		private final long settings;
+
+		/**
+		 * @param settings the {@link NativeBarcodeReader#settingsFingerprint()} of the decoding reader
+		 */
+		Key(long hash1, long hash2, int length, String templateName, long settings) {
+			this.hash1 = hash1;
+			this.hash2 = hash2;
+			this.length = length;
+			this.templateName = templateName;
+			this.settings = settings;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash1 == other.hash1 && hash2 == other.hash2 && length == other.length
+					&& settings == other.settings && templateName.equals(other.templateName);
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (hash1 ^ (hash1 >>> 32));
+		}
+	}
+
+	/**
+	 * A point-in-time snapshot of cache usage.
+	 */
+	public static final class Stats {
+
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final int size;
+		private final int maxEntries;
+
+		Stats(long hits, long misses, long evictions, int size, int maxEntries) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.size = size;
+			this.maxEntries = maxEntries;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public double getHitRate() {
+			long total = hits + misses;
+			return total == 0 ? 0 : (double) hits / total;
+		}
+
+		public long getEvictions() {
+			return evictions;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + "/"
+					+ maxEntries;
+		}
+	}
+}
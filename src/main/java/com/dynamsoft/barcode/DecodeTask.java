@@ -0,0 +1,11 @@
+package com.dynamsoft.barcode;
+
+/**
+ * A decode run by {@link NativeBarcodeReaderPool#decodeAsync(DecodeTask)} with a reader borrowed for it.
+ * 
+ * The task is called on one of the pool's decode threads and must not keep the reader after it returns.
+ */
+public interface DecodeTask {
+
+	BarcodeResult[] decode(NativeBarcodeReader reader) throws BarcodeReaderException;
+}
@@ -0,0 +1,17 @@
+package com.dynamsoft.barcode;
+
+/**
+ * How new runtime settings are merged with existing ones. The values mirror the native ConflictMode
+ * enumeration.
+ */
+public final class EnumConflictMode {
+
+	/** Ignores new settings and inherits the previous settings. */
+	public static final int CM_IGNORE = 1;
+
+	/** Overwrites the old settings with new settings. */
+	public static final int CM_OVERWRITE = 2;
+
+	private EnumConflictMode() {
+	}
+}
@@ -0,0 +1,20 @@
+package com.dynamsoft.barcode;
+
+/**
+ * Error codes reported through {@link BarcodeReaderException#getErrorCode()} by the Java layer itself. The
+ * values mirror the native DBRERR_ and DMERR_ definitions.
+ */
+public final class EnumErrorCode {
+
+	/** Successful. */
+	public static final int DBR_OK = 0;
+
+	/** The PDF DLL is missing. */
+	public static final int DBRERR_PDF_DLL_MISSING = -10022;
+
+	/** The instance count is over the limit. */
+	public static final int DMERR_INSTANCE_COUNT_OVER_LIMIT = -20008;
+
+	private EnumErrorCode() {
+	}
+}
@@ -0,0 +1,56 @@
+package com.dynamsoft.barcode;
+
+/**
+ * Kinds of intermediate result kept by a decode, combined as bit flags. The values mirror the native
+ * IntermediateResultType enumeration.
+ */
+public final class EnumIntermediateResultType {
+
+	/** No intermediate result */
+	public static final int IRT_NO_RESULT = 0x00000000;
+
+	/** Original image */
+	public static final int IRT_ORIGINAL_IMAGE = 0x00000001;
+
+	/** Colour clustered image */
+	public static final int IRT_COLOUR_CLUSTERED_IMAGE = 0x00000002;
+
+	/** Colour image converted to grayscale */
+	public static final int IRT_COLOUR_CONVERTED_GRAYSCALE_IMAGE = 0x00000004;
+
+	/** Transformed grayscale image */
+	public static final int IRT_TRANSFORMED_GRAYSCALE_IMAGE = 0x00000008;
+
+	/** Predetected region */
+	public static final int IRT_PREDETECTED_REGION = 0x00000010;
+
+	/** Preprocessed image */
+	public static final int IRT_PREPROCESSED_IMAGE = 0x00000020;
+
+	/** Binarized image */
+	public static final int IRT_BINARIZED_IMAGE = 0x00000040;
+
+	/** Text zone */
+	public static final int IRT_TEXT_ZONE = 0x00000080;
+
+	/** Contour */
+	public static final int IRT_CONTOUR = 0x00000100;
+
+	/** Line segment */
+	public static final int IRT_LINE_SEGMENT = 0x00000200;
+
+	/** Form */
+	public static final int IRT_FORM = 0x00000400;
+
+	/** Segmentation block */
+	public static final int IRT_SEGMENTATION_BLOCK = 0x00000800;
+
+	/** Typed barcode zone */
+	public static final int IRT_TYPED_BARCODE_ZONE = 0x00001000;
+
+	/** Predetected quadrilateral */
+	public static final int IRT_PREDETECTED_QUADRILATERAL = 0x00002000;
+
+	private EnumIntermediateResultType() {
+	}
+}
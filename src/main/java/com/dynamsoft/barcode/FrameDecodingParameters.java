@@ -0,0 +1,72 @@
+package com.dynamsoft.barcode;
+
+/**
+ * Parameters for {@link NativeBarcodeReader#startFrameDecoding}. The fields mirror the native
+ * FrameDecodingParameters struct and default to the values DBR uses.
+ */
+public class FrameDecodingParameters {
+
+	/** The maximum number of frames waiting to be decoded. */
+	public int maxQueueLength = 3;
+
+	/** The maximum number of frames whose results are kept. */
+	public int maxResultQueueLength = 10;
+
+	public int width;
+
+	public int height;
+
+	public int stride;
+
+	/** One of the {@link EnumImagePixelFormat} constants. */
+	public int imagePixelFormat = EnumImagePixelFormat.IPF_GRAYSCALED;
+
+	public int regionTop;
+
+	public int regionLeft;
+
+	public int regionRight;
+
+	public int regionBottom;
+
+	public int regionMeasuredByPercentage;
+
+	/** The threshold used for filtering frames. */
+	public float threshold = 0.01f;
+
+	/** The frequency of calling AppendFrame() per second, or 0 if unknown. */
+	public int fps;
+
+	/** Whether to filter out blurry frames (1) or not (0). */
+	public int autoFilter = 1;
+
+	public int clarityCalculationMethod = 1;
+
+	public int clarityFilterMode = 1;
+
+	/** The time in milliseconds during which an already reported barcode is not reported again. */
+	public int duplicateForgetTime = 3000;
+
+	public int orientation;
+
+	public FrameDecodingParameters() {
+	}
+
+	public FrameDecodingParameters(int width, int height, int stride, int imagePixelFormat) {
+		this.width = width;
+		this.height = height;
+		this.stride = stride;
+		this.imagePixelFormat = imagePixelFormat;
+	}
+
+	int getFrameSize() {
+		return stride * height;
+	}
+
+	// Flattened in the order nativeStartFrameDecoding reads them
+	int[] toArray() {
+		return new int[] { maxQueueLength, maxResultQueueLength, width, height, stride, imagePixelFormat, regionTop,
+				regionLeft, regionRight, regionBottom, regionMeasuredByPercentage, fps, autoFilter,
+				clarityCalculationMethod, clarityFilterMode, duplicateForgetTime, orientation };
+	}
+}
@@ -0,0 +1,20 @@
+package com.dynamsoft.barcode;
+
+/**
+ * Receives results from {@link NativeBarcodeReader#startFrameDecoding}.
+ * 
+ * Both methods are called on the native frame-decoding thread, so implementations should hand work
+ * off quickly rather than block it.
+ */
+public interface FrameResultListener {
+
+	/**
+	 * Called when a frame has been decoded and barcodes were found.
+	 */
+	void onResult(int frameId, BarcodeResult[] results);
+
+	/**
+	 * Called when decoding a frame failed with a native error code.
+	 */
+	void onError(int frameId, int errorCode);
+}
@@ -0,0 +1,91 @@
+package com.dynamsoft.barcode;
+
+import java.lang.ref.Cleaner;
+
+/**
+ * An opaque handle to the intermediate results of a decode, captured with
+ * {@link NativeBarcodeReader#getIntermediateResults()}.
+ * 
+ * The results can be decoded again, with any template and on any reader, through
+ * {@link NativeBarcodeReader#decodeIntermediateResults(IntermediateResults, String)}. This skips the
+ * image processing steps whose output was kept, such as grayscale conversion, binarization and
+ * localization. The native memory is released by {@link #close()}; a cleaner releases it for handles that
+ * become unreachable without being closed.
+ * 
+ * A handle is not thread-safe.
+ */
+public final class IntermediateResults implements AutoCloseable {
+
+	private long nativePtr;
+	private final int[] resultTypes;
+	private final Cleaner.Cleanable cleanable;
+
+	IntermediateResults(long nativePtr, int[] resultTypes) {
+		this.nativePtr = nativePtr;
+		this.resultTypes = resultTypes;
+		this.cleanable = NativeBarcodeReader.CLEANER.register(this, new Releaser(nativePtr));
+	}
+
+	/**
+	 * Returns the number of intermediate results held.
+	 */
+	public int size() {
+		return resultTypes.length;
+	}
+
+	/**
+	 * Returns the {@link EnumIntermediateResultType} of each result held.
+	 */
+	public int[] getResultTypes() {
+		return resultTypes.clone();
+	}
+
+	/**
+	 * Whether any result held is of the given type.
+	 */
+	public boolean contains(int resultType) {
+		for (int type : resultTypes) {
+			if (type == resultType) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isClosed() {
+		return nativePtr == 0;
+	}
+
+	/**
+	 * Frees the native results. Closing an already closed handle has no effect.
+	 */
+	@Override
+	public void close() {
+		if (nativePtr != 0) {
+			nativePtr = 0;
+			cleanable.clean();
+		}
+	}
+
+	long handle() {
+		long ptr = nativePtr;
+		if (ptr == 0) {
+			throw new IllegalStateException("Intermediate results are closed");
+		}
+		return ptr;
+	}
+
+	private static final class Releaser implements Runnable {
+
+		private final long nativePtr;
+
+		Releaser(long nativePtr) {
+			this.nativePtr = nativePtr;
+		}
+
+		@Override
+		public void run() {
+			NativeBarcodeReader.nativeFreeIntermediateResults(nativePtr);
+		}
+	}
+}
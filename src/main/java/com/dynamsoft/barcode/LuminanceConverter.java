@@ -0,0 +1,188 @@
+package com.dynamsoft.barcode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts colour pixels into 8-bit luma for {@link NativeBarcodeReader#decodeBuffer} with
+ * {@link EnumImagePixelFormat#IPF_GRAYSCALED}.
+ *
+ * <pre>
+ * ByteBuffer gray = LuminanceConverter.allocate(width, height);
+ * LuminanceConverter.toGray(bgr, 0, width * 3, EnumImagePixelFormat.IPF_RGB_888, width, height, gray, width);
+ * reader.decodeBuffer(gray, width, height, width, EnumImagePixelFormat.IPF_GRAYSCALED);
+ * </pre>
+ *
+ * Handing DBR a third (or a quarter) of the bytes of a colour frame shortens the JNI transfer and spares
+ * the decoder its own colour conversion. Luma uses the BT.601 weights in 8-bit fixed point,
+ * {@code (77 R + 150 G + 29 B + 128) >> 8}.
+ *
+ * As everywhere in DBR, the channel order of a format is stored from high to low address, so
+ * {@link EnumImagePixelFormat#IPF_RGB_888} is read as the bytes B, G, R (as in a
+ * {@code TYPE_3BYTE_BGR} raster) and {@link EnumImagePixelFormat#IPF_ARGB_8888} as B, G, R, A.
+ * {@link EnumImagePixelFormat#IPF_BGR_888} and {@link EnumImagePixelFormat#IPF_ABGR_8888} hold R first.
+ * Packed {@code int} pixels, as returned by {@code BufferedImage.getRGB} or held by {@code TYPE_INT_RGB}
+ * rasters, are converted by {@link #toGray(int[], int, int, int, int, ByteBuffer, int)}.
+ */
+public final class LuminanceConverter {
+
+	private static final int R_WEIGHT = 77;
+	private static final int G_WEIGHT = 150;
+	private static final int B_WEIGHT = 29;
+
+	private LuminanceConverter() {
+	}
+
+	/**
+	 * Allocates a direct buffer for a {@code width} by {@code height} grayscale image with a stride of
+	 * {@code width}.
+	 */
+	public static ByteBuffer allocate(int width, int height) {
+		return ByteBuffer.allocateDirect(Math.multiplyExact(width, height));
+	}
+
+	/**
+	 * Converts colour pixels held in an array.
+	 *
+	 * @param pixelFormat {@link EnumImagePixelFormat#IPF_RGB_888}, {@link EnumImagePixelFormat#IPF_BGR_888},
+	 *            {@link EnumImagePixelFormat#IPF_ARGB_8888} or {@link EnumImagePixelFormat#IPF_ABGR_8888}
+	 * @param dst receives the luma from its current position, which is not changed
+	 */
+	public static void toGray(byte[] src, int srcOffset, int srcStride, int pixelFormat, int width, int height,
+			ByteBuffer dst, int dstStride) {
+		int pixelSize = pixelSize(pixelFormat);
+		checkBounds(src.length - srcOffset, srcStride, (long) width * pixelSize, height);
+		checkBounds(dst.remaining(), dstStride, width, height);
+
+		byte[] row = new byte[width];
+		ByteBuffer out = dst.duplicate();
+		int base = dst.position();
+		for (int y = 0; y < height; y++) {
+			convertRow(src, srcOffset + y * srcStride, pixelFormat, row, width);
+			out.position(base + y * dstStride);
+			out.put(row, 0, width);
+		}
+	}
+
+	/**
+	 * Converts colour pixels held in a buffer, such as a camera frame, starting at its current position.
+	 * Neither buffer's position is changed.
+	 */
+	public static void toGray(ByteBuffer src, int srcStride, int pixelFormat, int width, int height, ByteBuffer dst,
+			int dstStride) {
+		int pixelSize = pixelSize(pixelFormat);
+		checkBounds(src.remaining(), srcStride, (long) width * pixelSize, height);
+		checkBounds(dst.remaining(), dstStride, width, height);
+
+		byte[] row = new byte[width];
+		ByteBuffer out = dst.duplicate();
+		int srcBase = src.position();
+		int dstBase = dst.position();
+		for (int y = 0; y < height; y++) {
+			convertRow(src, srcBase + y * srcStride, pixelFormat, row, width);
+			out.position(dstBase + y * dstStride);
+			out.put(row, 0, width);
+		}
+	}
+
+	/**
+	 * Converts packed {@code 0xAARRGGBB} pixels. Alpha is ignored.
+	 *
+	 * @param scanSize the distance in ints between the starts of two rows
+	 */
+	public static void toGray(int[] argb, int offset, int scanSize, int width, int height, ByteBuffer dst,
+			int dstStride) {
+		checkBounds(argb.length - offset, scanSize, width, height);
+		checkBounds(dst.remaining(), dstStride, width, height);
+
+		byte[] row = new byte[width];
+		ByteBuffer out = dst.duplicate();
+		int base = dst.position();
+		for (int y = 0; y < height; y++) {
+			int index = offset + y * scanSize;
+			for (int x = 0; x < width; x++) {
+				int pixel = argb[index + x];
+				row[x] = luma((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff);
+			}
+			out.position(base + y * dstStride);
+			out.put(row, 0, width);
+		}
+	}
+
+	private static void convertRow(byte[] src, int index, int pixelFormat, byte[] row, int width) {
+		// One loop per layout keeps the channel offsets constant, so the JIT can unroll them
+		switch (pixelFormat) {
+		case EnumImagePixelFormat.IPF_RGB_888:
+			for (int x = 0; x < width; x++, index += 3) {
+				row[x] = luma(src[index + 2] & 0xff, src[index + 1] & 0xff, src[index] & 0xff);
+			}
+			break;
+		case EnumImagePixelFormat.IPF_BGR_888:
+			for (int x = 0; x < width; x++, index += 3) {
+				row[x] = luma(src[index] & 0xff, src[index + 1] & 0xff, src[index + 2] & 0xff);
+			}
+			break;
+		case EnumImagePixelFormat.IPF_ARGB_8888:
+			for (int x = 0; x < width; x++, index += 4) {
+				row[x] = luma(src[index + 2] & 0xff, src[index + 1] & 0xff, src[index] & 0xff);
+			}
+			break;
+		default:
+			for (int x = 0; x < width; x++, index += 4) {
+				row[x] = luma(src[index] & 0xff, src[index + 1] & 0xff, src[index + 2] & 0xff);
+			}
+			break;
+		}
+	}
+
+	private static void convertRow(ByteBuffer src, int index, int pixelFormat, byte[] row, int width) {
+		switch (pixelFormat) {
+		case EnumImagePixelFormat.IPF_RGB_888:
+			for (int x = 0; x < width; x++, index += 3) {
+				row[x] = luma(src.get(index + 2) & 0xff, src.get(index + 1) & 0xff, src.get(index) & 0xff);
+			}
+			break;
+		case EnumImagePixelFormat.IPF_BGR_888:
+			for (int x = 0; x < width; x++, index += 3) {
+				row[x] = luma(src.get(index) & 0xff, src.get(index + 1) & 0xff, src.get(index + 2) & 0xff);
+			}
+			break;
+		case EnumImagePixelFormat.IPF_ARGB_8888:
+			for (int x = 0; x < width; x++, index += 4) {
+				row[x] = luma(src.get(index + 2) & 0xff, src.get(index + 1) & 0xff, src.get(index) & 0xff);
+			}
+			break;
+		default:
+			for (int x = 0; x < width; x++, index += 4) {
+				row[x] = luma(src.get(index) & 0xff, src.get(index + 1) & 0xff, src.get(index + 2) & 0xff);
+			}
+			break;
+		}
+	}
+
+	private static byte luma(int r, int g, int b) {
+		return (byte) ((R_WEIGHT * r + G_WEIGHT * g + B_WEIGHT * b + 128) >> 8);
+	}
+
+	private static int pixelSize(int pixelFormat) {
+		switch (pixelFormat) {
+		case EnumImagePixelFormat.IPF_RGB_888:
+		case EnumImagePixelFormat.IPF_BGR_888:
+			return 3;
+		case EnumImagePixelFormat.IPF_ARGB_8888:
+		case EnumImagePixelFormat.IPF_ABGR_8888:
+			return 4;
+		default:
+			throw new IllegalArgumentException("Unsupported pixel format: " + pixelFormat);
+		}
+	}
+
+	private static void checkBounds(long available, int stride, long rowSize, int height) {
+		if (height < 0 || rowSize < 0 || stride < rowSize) {
+			throw new IllegalArgumentException("Invalid layout: stride " + stride + ", row size " + rowSize);
+		}
+		if (height > 0 && (long) stride * (height - 1) + rowSize > available) {
+			throw new IndexOutOfBoundsException("Image needs " + ((long) stride * (height - 1) + rowSize)
+					+ " elements, " + available + " available");
+		}
+	}
+}
@@ -1,9 +1,66 @@
 package com.dynamsoft.barcode;
 
-public class NativeBarcodeReader {
-	
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Dynamsoft Barcode Reader instance.
+ * 
+ * Readers own a native instance and should be closed when no longer needed, preferably with
+ * try-with-resources. A {@link Cleaner} releases the native instance of readers that become unreachable
+ * without being closed; such readers are counted in {@link NativeMemoryStats#getLeakedReaders()}.
+ * 
+ * A reader is not thread-safe. Use one reader per thread or a {@link NativeBarcodeReaderPool}.
+ */
+public class NativeBarcodeReader implements AutoCloseable {
+
+	static final Cleaner CLEANER = Cleaner.create();
+	private static final AtomicLong LEAKED_READERS = new AtomicLong();
+
+	// JFR is not available on Android; DecodeEvent is only loaded when it is
+	private static final boolean DECODE_EVENTS = isJfrAvailable();
+
+	// Decode natives are instance methods, which keeps the reader reachable while they run, so the
+	// cleaner can never release the instance under a decode in progress.
 	private long nativePtr = 0;
 
+	private final Releaser releaser;
+	private final Cleaner.Cleanable cleanable;
+
+	// Owning pool, and the lease state guarded by its lock
+	final NativeBarcodeReaderPool pool;
+	boolean borrowed;
+
+	// Set while a frame decoding thread is running
+	private FrameDecodingParameters frameParameters;
+
+	// The attached registry and the version of it last loaded into the native instance
+	private volatile TemplateRegistry templateRegistry;
+	private TemplateRegistry.Snapshot appliedTemplates;
+	// Hash of the template strings loaded into the native instance, 0 for the default settings
+	private long settingsFingerprint;
+
+	private volatile DecodeMetrics decodeMetrics;
+
+	// Intermediate results requested by the caller, and the diagnostics of the last decode
+	private int intermediateResultTypes;
+	private boolean diagnosticsEnabled;
+	private DecodeDiagnostics lastDiagnostics;
+	// Set while warmUp runs, so its synthetic decodes stay out of the metrics and the JFR recording
+	private boolean warmingUp;
+
 	static {
 		if (System.getProperty("java.vm.vendor").contains("Android")) {
 			System.loadLibrary("dbr");
@@ -20,20 +77,858 @@ public class NativeBarcodeReader {
 	}
 	
 	public NativeBarcodeReader() {
-		nativePtr = nativeCreateInstance();
+		this(nativeCreateInstance(), null);
 	}
-	
+
+	/**
+	 * Wraps an instance obtained from DBR's instance pool for {@code pool}. The instance is recycled rather
+	 * than destroyed.
+	 */
+	NativeBarcodeReader(long nativePtr, NativeBarcodeReaderPool pool) {
+		this.nativePtr = nativePtr;
+		this.pool = pool;
+		this.releaser = new Releaser(nativePtr, pool);
+		this.cleanable = CLEANER.register(this, releaser);
+	}
+
+	/**
+	 * Releases the native instance. Calling any decode method afterwards throws
+	 * {@link IllegalStateException}. Closing an already closed reader has no effect.
+	 */
+	@Override
+	public void close() {
+		if (nativePtr != 0) {
+			nativePtr = 0;
+			frameParameters = null;
+			releaser.closed = true;
+			cleanable.clean();
+		}
+	}
+
+	/**
+	 * Same as {@link #close()}.
+	 */
 	public void destroyInstance() {
-		if (nativePtr != 0)
-			nativeDestroyInstance(nativePtr);
+		close();
+	}
+
+	public boolean isClosed() {
+		return nativePtr == 0;
 	}
 	
 	public void setLicense(String license) {
-		nativeInitLicense(nativePtr, license);
+		nativeInitLicense(handle(), license);
+	}
+
+	/**
+	 * Returns a snapshot of the native resources currently held by all readers in this process.
+	 */
+	public static NativeMemoryStats getNativeMemoryStats() {
+		return new NativeMemoryStats(nativeGetMemoryStats(), LEAKED_READERS.get());
+	}
+
+	/**
+	 * Initializes the process-wide license. Unlike {@link #setLicense(String)}, this does not need a reader
+	 * instance and reports license errors.
+	 */
+	public static void initLicense(String license) throws BarcodeReaderException {
+		nativeInitGlobalLicense(license);
+	}
+
+	/**
+	 * Prepares the process for decoding before it takes traffic: loads the native libraries, initializes
+	 * the license if one is given, and runs {@link #warmUp(int)} on a temporary reader. This moves native
+	 * initialization and JIT compilation of the decode path out of the first real requests.
+	 */
+	public static void warmUp(String license, int iterations) throws BarcodeReaderException {
+		if (license != null) {
+			initLicense(license);
+		}
+		try (NativeBarcodeReader reader = new NativeBarcodeReader()) {
+			reader.warmUp(iterations);
+		}
+	}
+
+	/**
+	 * Runs synthetic decodes of raw pixels and of an encoded image with the default settings and with every
+	 * loaded parameter template, including those of an attached {@link TemplateRegistry}. They are not
+	 * recorded in the attached {@link DecodeMetrics} nor as {@link DecodeEvent}s.
+	 */
+	public void warmUp(int iterations) throws BarcodeReaderException {
+		prepare();
+		String[] templates = getParameterTemplateNames();
+		String[] templateNames = new String[templates.length + 1];
+		templateNames[0] = "";
+		System.arraycopy(templates, 0, templateNames, 1, templates.length);
+
+		ByteBuffer pixels = SyntheticImage.directPixels();
+		byte[] bmp = SyntheticImage.bmp();
+		warmingUp = true;
+		try {
+			for (int i = 0; i < iterations; i++) {
+				for (String templateName : templateNames) {
+					decodeBuffer(pixels, SyntheticImage.WIDTH, SyntheticImage.HEIGHT, SyntheticImage.WIDTH,
+							EnumImagePixelFormat.IPF_GRAYSCALED, templateName);
+					decodeFileInMemory(bmp, 0, bmp.length, templateName);
+				}
+			}
+		} finally {
+			warmingUp = false;
+		}
 	}
 	
-	public void decodeFile(String fileName) {
-		nativeDecodeFile(nativePtr, fileName);
+	/**
+	 * Replaces the runtime settings, including all parameter templates, with those in a JSON string.
+	 * 
+	 * @param conflictMode one of the {@link EnumConflictMode} constants
+	 */
+	public void initRuntimeSettingsWithString(String content, int conflictMode) throws BarcodeReaderException {
+		long ptr = handle();
+		initSettings(ptr, content, conflictMode);
+		appliedTemplates = null;
+		applyIntermediateResultTypes(ptr);
+	}
+
+	/**
+	 * Adds the parameter templates in a JSON string to the current runtime settings.
+	 * 
+	 * @param conflictMode one of the {@link EnumConflictMode} constants
+	 */
+	public void appendTplStringToRuntimeSettings(String content, int conflictMode) throws BarcodeReaderException {
+		appendSettings(handle(), content, conflictMode);
+		appliedTemplates = null;
+	}
+
+	/**
+	 * Returns the names of the parameter templates currently loaded into this reader.
+	 */
+	public String[] getParameterTemplateNames() {
+		return nativeGetParameterTemplateNames(handle());
+	}
+
+	/**
+	 * Attaches a template registry. Before each decode the reader checks whether the registry has been
+	 * swapped since it last loaded it, and if so reloads the complete template set, so a decode always
+	 * runs against exactly one version of the registry. Pass {@code null} to detach; the templates
+	 * already loaded stay in place.
+	 */
+	public void setTemplateRegistry(TemplateRegistry registry) {
+		templateRegistry = registry;
+		appliedTemplates = null;
+	}
+
+	public TemplateRegistry getTemplateRegistry() {
+		return templateRegistry;
+	}
+
+	/**
+	 * Records the latency and outcome of every decode in {@code metrics}. Pass {@code null} to stop
+	 * recording.
+	 */
+	public void setDecodeMetrics(DecodeMetrics metrics) {
+		decodeMetrics = metrics;
+	}
+
+	public DecodeMetrics getDecodeMetrics() {
+		return decodeMetrics;
+	}
+
+	/**
+	 * Decodes an image file.
+	 * 
+	 * @return the barcodes found, or an empty array if there are none
+	 * @throws BarcodeReaderException if the native decode reports an error
+	 */
+	public BarcodeResult[] decodeFile(String fileName) throws BarcodeReaderException {
+		return decodeFile(fileName, "");
+	}
+
+	/**
+	 * Decodes an image file with the named parameter template.
+	 */
+	public BarcodeResult[] decodeFile(String fileName, String templateName) throws BarcodeReaderException {
+		NativeLoader.ensurePdfSupport(fileName);
+		long bytes = decodeMetrics != null ? new File(fileName).length() : 0;
+		return decode("file", 0, 0, templateName, bytes, ptr -> nativeDecodeFile(ptr, fileName, templateName));
+	}
+
+	/**
+	 * Decodes an encoded image file (JPEG, PNG, TIFF, PDF, ...) held in memory.
+	 */
+	public BarcodeResult[] decodeFileInMemory(byte[] data) throws BarcodeReaderException {
+		return decodeFileInMemory(data, 0, data.length, "");
+	}
+
+	/**
+	 * Decodes {@code length} bytes of an encoded image file starting at {@code offset}.
+	 * 
+	 * The bytes are copied into native memory for the decode. Pinning the array instead would hold off
+	 * garbage collection in every thread until the decode returns, and even a small JPEG can take hundreds
+	 * of milliseconds to decode. A direct buffer passed to {@link #decodeFileInMemory(ByteBuffer, String)}
+	 * avoids the copy.
+	 */
+	public BarcodeResult[] decodeFileInMemory(byte[] data, int offset, int length) throws BarcodeReaderException {
+		return decodeFileInMemory(data, offset, length, "");
+	}
+
+	public BarcodeResult[] decodeFileInMemory(byte[] data, int offset, int length, String templateName)
+			throws BarcodeReaderException {
+		if (offset < 0 || length < 0 || offset > data.length - length) {
+			throw new IndexOutOfBoundsException(
+					"offset " + offset + ", length " + length + ", array length " + data.length);
+		}
+		if (NativeLoader.isPdf(data, offset, length)) {
+			NativeLoader.ensurePdfSupport();
+		}
+		return decode("memory", 0, 0, templateName, length,
+				ptr -> nativeDecodeFileInMemory(ptr, data, offset, length, templateName));
+	}
+
+	/**
+	 * Decodes the encoded image file bytes remaining in a direct buffer, without copying them.
+	 */
+	public BarcodeResult[] decodeFileInMemory(ByteBuffer buffer) throws BarcodeReaderException {
+		return decodeFileInMemory(buffer, "");
+	}
+
+	public BarcodeResult[] decodeFileInMemory(ByteBuffer buffer, String templateName) throws BarcodeReaderException {
+		checkDirectBuffer(buffer, 0);
+		if (NativeLoader.isPdf(buffer)) {
+			NativeLoader.ensurePdfSupport();
+		}
+		final int offset = buffer.position();
+		final int length = buffer.remaining();
+		return decode("memory", 0, 0, templateName, length,
+				ptr -> nativeDecodeFileInMemoryDirect(ptr, buffer, offset, length, templateName));
+	}
+
+	/**
+	 * Decodes an image file by memory-mapping it read-only. Pages are faulted in by the kernel as the
+	 * decoder touches them, so large TIFF/PDF files are neither read into the Java heap nor duplicated
+	 * outside the page cache.
+	 */
+	public BarcodeResult[] decodeMapped(Path file) throws IOException, BarcodeReaderException {
+		return decodeMapped(file, "");
+	}
+
+	public BarcodeResult[] decodeMapped(Path file, String templateName) throws IOException, BarcodeReaderException {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large to decode in memory: " + file);
+			}
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		return decodeFileInMemory(mapped, templateName);
+	}
+
+	/**
+	 * Decodes raw pixels held in a direct buffer, starting at its current position. The buffer memory
+	 * is handed to the native decoder as is; nothing is copied onto the Java heap.
+	 * 
+	 * @param buffer a direct buffer with at least {@code stride * height} bytes remaining
+	 * @param pixelFormat one of the {@link EnumImagePixelFormat} constants
+	 */
+	public BarcodeResult[] decodeBuffer(ByteBuffer buffer, int width, int height, int stride, int pixelFormat)
+			throws BarcodeReaderException {
+		return decodeBuffer(buffer, width, height, stride, pixelFormat, "");
+	}
+
+	public BarcodeResult[] decodeBuffer(ByteBuffer buffer, int width, int height, int stride, int pixelFormat,
+			String templateName) throws BarcodeReaderException {
+		checkDirectBuffer(buffer, (long) stride * height);
+		final int offset = buffer.position();
+		return decode("buffer", width, height, templateName, (long) stride * height,
+				ptr -> nativeDecodeBuffer(ptr, buffer, offset, width, height, stride, pixelFormat, templateName));
+	}
+
+	/**
+	 * Decodes only the given regions of an image file. Each region is localized in a separate pass with
+	 * {@code PublicRuntimeSettings.region} set to it; results are merged, with barcodes found by
+	 * overlapping regions reported once. Result coordinates are in full-image space.
+	 * 
+	 * Every pass is a full decode call, so the file is read and its image decoded once per region: N
+	 * regions cost about N decodes of the whole file. For many regions of one large image, decoding the
+	 * pixels once with {@link #decodeBufferRegions} avoids the repeated file reads.
+	 * 
+	 * The regions apply to the current runtime settings, which are restored afterwards.
+	 */
+	public BarcodeResult[] decodeFileRegions(String fileName, RegionDefinition... regions)
+			throws BarcodeReaderException {
+		return decodeFileRegions(fileName, "", regions);
+	}
+
+	/**
+	 * Same as {@link #decodeFileRegions(String, RegionDefinition...)} with the named parameter template.
+	 * The regions are set on the current runtime settings, so they only take effect when
+	 * {@code templateName} is empty or names the template those settings were loaded from; other templates
+	 * use their own {@code RegionDefinitionNameArray}.
+	 */
+	public BarcodeResult[] decodeFileRegions(final String fileName, final String templateName,
+			RegionDefinition... regions) throws BarcodeReaderException {
+		NativeLoader.ensurePdfSupport(fileName);
+		long bytes = decodeMetrics != null ? new File(fileName).length() : 0;
+		return decode("region-file", 0, 0, templateName, bytes,
+				ptr -> decodeRegions(ptr, regions, p -> nativeDecodeFile(p, fileName, templateName)));
+	}
+
+	/**
+	 * Decodes only the given regions of raw pixels held in a direct buffer, one decode pass per region.
+	 * 
+	 * @see #decodeFileRegions(String, RegionDefinition...)
+	 */
+	public BarcodeResult[] decodeBufferRegions(ByteBuffer buffer, int width, int height, int stride,
+			int pixelFormat, RegionDefinition... regions) throws BarcodeReaderException {
+		return decodeBufferRegions(buffer, width, height, stride, pixelFormat, "", regions);
+	}
+
+	/**
+	 * @see #decodeFileRegions(String, String, RegionDefinition...)
+	 */
+	public BarcodeResult[] decodeBufferRegions(final ByteBuffer buffer, final int width, final int height,
+			final int stride, final int pixelFormat, final String templateName, RegionDefinition... regions)
+			throws BarcodeReaderException {
+		checkDirectBuffer(buffer, (long) stride * height);
+		final int offset = buffer.position();
+		return decode("region-buffer", width, height, templateName, (long) stride * height,
+				ptr -> decodeRegions(ptr, regions,
+						p -> nativeDecodeBuffer(p, buffer, offset, width, height, stride, pixelFormat, templateName)));
+	}
+
+	private BarcodeResult[] decodeRegions(long ptr, RegionDefinition[] regions, NativeDecode decoder)
+			throws BarcodeReaderException {
+		if (regions.length == 0) {
+			throw new IllegalArgumentException("No regions");
+		}
+		int[] previous = nativeSetRegion(ptr, regions[0].toArray());
+		try {
+			BarcodeResult[] results = decoder.decode(ptr);
+			if (regions.length == 1) {
+				return results;
+			}
+			List<BarcodeResult> merged = new ArrayList<>();
+			addDistinct(merged, results);
+			for (int i = 1; i < regions.length; i++) {
+				nativeSetRegion(ptr, regions[i].toArray());
+				addDistinct(merged, decoder.decode(ptr));
+			}
+			return merged.toArray(new BarcodeResult[merged.size()]);
+		} finally {
+			nativeSetRegion(ptr, previous);
+		}
+	}
+
+	private static void addDistinct(List<BarcodeResult> merged, BarcodeResult[] results) {
+		if (results == null) {
+			return;
+		}
+		for (BarcodeResult result : results) {
+			boolean duplicate = false;
+			for (BarcodeResult existing : merged) {
+				if (isSameBarcode(existing, result)) {
+					duplicate = true;
+					break;
+				}
+			}
+			if (!duplicate) {
+				merged.add(result);
+			}
+		}
+	}
+
+	/**
+	 * Whether two results have the same content and overlapping bounds, as when one barcode lies in two
+	 * overlapping regions.
+	 */
+	private static boolean isSameBarcode(BarcodeResult a, BarcodeResult b) {
+		if (!a.getText().equals(b.getText()) || !a.getFormat().equals(b.getFormat())) {
+			return false;
+		}
+		int[] pa = a.getPoints();
+		int[] pb = b.getPoints();
+		return minOf(pa, 0) <= maxOf(pb, 0) && minOf(pb, 0) <= maxOf(pa, 0) && minOf(pa, 1) <= maxOf(pb, 1)
+				&& minOf(pb, 1) <= maxOf(pa, 1);
+	}
+
+	private static int minOf(int[] points, int axis) {
+		return Math.min(Math.min(points[axis], points[axis + 2]), Math.min(points[axis + 4], points[axis + 6]));
+	}
+
+	private static int maxOf(int[] points, int axis) {
+		return Math.max(Math.max(points[axis], points[axis + 2]), Math.max(points[axis + 4], points[axis + 6]));
+	}
+
+	private interface NativeDecode {
+		BarcodeResult[] decode(long ptr) throws BarcodeReaderException;
+	}
+
+	/**
+	 * The intermediate result types are part of the runtime settings, which every template load resets.
+	 * Puts back the ones this reader was asked to keep.
+	 */
+	private void applyIntermediateResultTypes(long ptr) throws BarcodeReaderException {
+		int resultTypes = intermediateResultTypes | (diagnosticsEnabled ? DecodeDiagnostics.STAGE_TYPES : 0);
+		if (resultTypes != 0) {
+			nativeSetIntermediateResultTypes(ptr, resultTypes);
+		}
+	}
+
+	/**
+	 * Selects which intermediate results later decodes keep for {@link #getIntermediateResults()}. The
+	 * types are set on the current runtime settings; named templates select their own with
+	 * {@code IntermediateResultTypes}.
+	 * 
+	 * @param resultTypes a combination of {@link EnumIntermediateResultType} flags
+	 */
+	public void setIntermediateResultTypes(int resultTypes) throws BarcodeReaderException {
+		nativeSetIntermediateResultTypes(prepare(),
+				resultTypes | (diagnosticsEnabled ? DecodeDiagnostics.STAGE_TYPES : 0));
+		intermediateResultTypes = resultTypes;
+	}
+
+	/**
+	 * Turns on {@link DecodeDiagnostics} for later decodes. While enabled, decodes also keep the
+	 * intermediate results the diagnostics are built from, which includes a copy of each binarized image,
+	 * so expect them to run slower. Reading the stage output costs more again: DBR only hands out
+	 * intermediate results through {@code DBR_GetIntermediateResults}, which copies every kept result,
+	 * binarized images included, after each decode just to count them. Like
+	 * {@link #setIntermediateResultTypes(int)}, this applies to the current runtime settings; named
+	 * templates only report stage output if they keep those results.
+	 */
+	public void setDiagnosticsEnabled(boolean enabled) throws BarcodeReaderException {
+		nativeSetIntermediateResultTypes(prepare(),
+				intermediateResultTypes | (enabled ? DecodeDiagnostics.STAGE_TYPES : 0));
+		diagnosticsEnabled = enabled;
+		lastDiagnostics = null;
+	}
+
+	public boolean isDiagnosticsEnabled() {
+		return diagnosticsEnabled;
+	}
+
+	/**
+	 * Returns the diagnostics of the last decode, or {@code null} if diagnostics are disabled. For a decode
+	 * restricted to several regions, they cover the last region. For a batch decode, the timing covers the
+	 * whole batch, the return code is the first per-image error and the stages are those of the last image.
+	 */
+	public DecodeDiagnostics getLastDiagnostics() {
+		return lastDiagnostics;
+	}
+
+	/**
+	 * Captures the intermediate results kept by the last decode. The returned handle is independent of
+	 * this reader and must be closed by the caller.
+	 * 
+	 * @return the captured results, or {@code null} if the last decode kept none
+	 */
+	public IntermediateResults getIntermediateResults() throws BarcodeReaderException {
+		long resultsPtr = nativeGetIntermediateResults(handle());
+		if (resultsPtr == 0) {
+			return null;
+		}
+		return new IntermediateResults(resultsPtr, nativeGetIntermediateResultTypes(resultsPtr));
+	}
+
+	/**
+	 * Decodes previously captured intermediate results, typically with a more thorough template than the
+	 * pass that produced them.
+	 */
+	public BarcodeResult[] decodeIntermediateResults(IntermediateResults results, String templateName)
+			throws BarcodeReaderException {
+		try {
+			final long resultsPtr = results.handle();
+			return decode("intermediate", 0, 0, templateName, 0,
+					ptr -> nativeDecodeIntermediateResults(ptr, resultsPtr, templateName));
+		} finally {
+			// The native call only receives the address, which the handle's cleaner would otherwise free
+			Reference.reachabilityFence(results);
+		}
+	}
+
+	/**
+	 * Decodes a batch of image files in a single native call. Per-image errors are reported through
+	 * {@link BatchDecodeResult#getErrorCode(int)} rather than thrown.
+	 */
+	public BatchDecodeResult decodeBatch(String[] fileNames) throws BarcodeReaderException {
+		return decodeBatch(fileNames, "");
+	}
+
+	public BatchDecodeResult decodeBatch(String[] fileNames, String templateName) throws BarcodeReaderException {
+		for (String fileName : fileNames) {
+			NativeLoader.ensurePdfSupport(fileName);
+		}
+		DecodeMetrics metrics = decodeMetrics;
+		long ptr = prepare();
+		lastDiagnostics = null;
+		Object event = DECODE_EVENTS ? DecodeEvent.start() : null;
+		long start = System.nanoTime();
+		boolean timing = diagnosticsEnabled;
+		if (timing) {
+			nativeSetDecodeTiming(true);
+		}
+		BatchDecodeResult batch;
+		try {
+			batch = nativeDecodeFileBatch(ptr, fileNames, templateName);
+		} finally {
+			if (timing) {
+				nativeSetDecodeTiming(false);
+			}
+		}
+		if (timing) {
+			captureDiagnostics(ptr, templateName, firstErrorCode(batch),
+					batch == null ? 0 : batch.getTotalResultCount());
+		}
+		if (event != null) {
+			finishBatchEvent(event, "batch-file", templateName, 0, batch);
+		}
+		if (metrics != null && batch != null) {
+			long[] bytes = new long[fileNames.length];
+			for (int i = 0; i < fileNames.length; i++) {
+				bytes[i] = new File(fileNames[i]).length();
+			}
+			recordBatch(metrics, templateName, System.nanoTime() - start, batch, bytes);
+		}
+		return batch;
+	}
+
+	/**
+	 * Decodes a batch of encoded image files held in direct buffers, each from its position to its limit,
+	 * in a single native call.
+	 */
+	public BatchDecodeResult decodeBatch(ByteBuffer[] images) throws BarcodeReaderException {
+		return decodeBatch(images, "");
+	}
+
+	public BatchDecodeResult decodeBatch(ByteBuffer[] images, String templateName) throws BarcodeReaderException {
+		int[] offsets = new int[images.length];
+		int[] lengths = new int[images.length];
+		for (int i = 0; i < images.length; i++) {
+			checkDirectBuffer(images[i], 0);
+			offsets[i] = images[i].position();
+			lengths[i] = images[i].remaining();
+			if (NativeLoader.isPdf(images[i])) {
+				NativeLoader.ensurePdfSupport();
+			}
+		}
+		DecodeMetrics metrics = decodeMetrics;
+		long ptr = prepare();
+		lastDiagnostics = null;
+		Object event = DECODE_EVENTS ? DecodeEvent.start() : null;
+		long start = System.nanoTime();
+		boolean timing = diagnosticsEnabled;
+		if (timing) {
+			nativeSetDecodeTiming(true);
+		}
+		BatchDecodeResult batch;
+		try {
+			batch = nativeDecodeMemoryBatch(ptr, images, offsets, lengths, templateName);
+		} finally {
+			if (timing) {
+				nativeSetDecodeTiming(false);
+			}
+		}
+		if (timing) {
+			captureDiagnostics(ptr, templateName, firstErrorCode(batch),
+					batch == null ? 0 : batch.getTotalResultCount());
+		}
+		if (event != null) {
+			long bytes = 0;
+			for (int length : lengths) {
+				bytes += length;
+			}
+			finishBatchEvent(event, "batch-memory", templateName, bytes, batch);
+		}
+		if (metrics != null && batch != null) {
+			long[] bytes = new long[lengths.length];
+			for (int i = 0; i < lengths.length; i++) {
+				bytes[i] = lengths[i];
+			}
+			recordBatch(metrics, templateName, System.nanoTime() - start, batch, bytes);
+		}
+		return batch;
+	}
+
+	static void checkDirectBuffer(ByteBuffer buffer, long required) {
+		if (buffer == null || !buffer.isDirect()) {
+			throw new IllegalArgumentException("A direct ByteBuffer is required");
+		}
+		if (buffer.remaining() < required) {
+			throw new IllegalArgumentException(
+					"Buffer has " + buffer.remaining() + " bytes remaining, " + required + " required");
+		}
+	}
+
+	/**
+	 * Starts DBR's frame-decoding thread. Frames pushed with {@link #appendFrame(ByteBuffer)} are queued
+	 * and decoded in the background, and results are delivered to {@code listener} on the native worker
+	 * thread.
+	 */
+	public void startFrameDecoding(FrameDecodingParameters parameters, FrameResultListener listener)
+			throws BarcodeReaderException {
+		startFrameDecoding(parameters, listener, false);
+	}
+
+	/**
+	 * Starts frame decoding in unique-barcode mode. The native layer de-duplicates results, so each
+	 * barcode is reported to {@code listener} only once until it has not been seen for
+	 * {@link FrameDecodingParameters#duplicateForgetTime} milliseconds. Repeated reads of the same
+	 * barcode are never marshalled into Java.
+	 */
+	public void startUniqueBarcodeDecoding(FrameDecodingParameters parameters, FrameResultListener listener)
+			throws BarcodeReaderException {
+		startFrameDecoding(parameters, listener, true);
+	}
+
+	private void startFrameDecoding(FrameDecodingParameters parameters, FrameResultListener listener,
+			boolean uniqueBarcodes) throws BarcodeReaderException {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener is required");
+		}
+		if (frameParameters != null) {
+			throw new IllegalStateException("Frame decoding is already running");
+		}
+		long frameContext = nativeStartFrameDecoding(prepare(), parameters.toArray(), parameters.threshold, listener,
+				uniqueBarcodes);
+		releaser.frameContext = frameContext;
+		frameParameters = parameters;
+	}
+
+	/**
+	 * Appends a frame to the decoding queue. The frame is copied into the native queue, so the buffer may
+	 * be reused as soon as this returns.
+	 * 
+	 * @param frame a direct buffer holding one frame in the format passed to
+	 *            {@link #startFrameDecoding}, starting at its current position
+	 * @return the id of the appended frame, or -1 if the queue is full and the frame was not appended.
+	 *         Producers should treat -1 as a signal to slow down or drop frames.
+	 */
+	public int appendFrame(ByteBuffer frame) {
+		if (frameParameters == null) {
+			throw new IllegalStateException("Frame decoding is not running");
+		}
+		checkDirectBuffer(frame, frameParameters.getFrameSize());
+		return nativeAppendFrame(handle(), releaser.frameContext, frame, frame.position());
+	}
+
+	/**
+	 * Returns the number of frames waiting in the decoding queue.
+	 */
+	public int getLengthOfFrameQueue() {
+		return nativeGetLengthOfFrameQueue(handle());
+	}
+
+	/**
+	 * Stops the frame-decoding thread. Results still in flight are discarded.
+	 */
+	public void stopFrameDecoding() throws BarcodeReaderException {
+		if (frameParameters != null) {
+			long context = releaser.frameContext;
+			releaser.frameContext = 0;
+			frameParameters = null;
+			try {
+				nativeStopFrameDecoding(handle(), context);
+			} finally {
+				// The static native does not keep this reader, and so the instance, reachable
+				Reference.reachabilityFence(this);
+			}
+		}
+	}
+
+	/**
+	 * Brings a pooled reader back to its initial state before it goes to the next borrower: stops frame
+	 * decoding and drops custom runtime settings, intermediate result types and diagnostics.
+	 */
+	void resetForPool() throws BarcodeReaderException {
+		stopFrameDecoding();
+		resetSettings(handle());
+		appliedTemplates = null;
+		intermediateResultTypes = 0;
+		diagnosticsEnabled = false;
+		lastDiagnostics = null;
+	}
+
+	/**
+	 * Replaces all runtime settings with the given template strings, or resets them if there are none.
+	 */
+	void loadTemplates(List<String> contents) throws BarcodeReaderException {
+		long ptr = handle();
+		if (contents.isEmpty()) {
+			resetSettings(ptr);
+			return;
+		}
+		initSettings(ptr, contents.get(0), EnumConflictMode.CM_OVERWRITE);
+		for (int i = 1; i < contents.size(); i++) {
+			appendSettings(ptr, contents.get(i), EnumConflictMode.CM_OVERWRITE);
+		}
+	}
+
+	// The fingerprint changes before the native call, so a call that fails halfway never leaves the old one
+	private void initSettings(long ptr, String content, int conflictMode) throws BarcodeReaderException {
+		settingsFingerprint = foldSettings(0, content, conflictMode);
+		nativeInitRuntimeSettingsWithString(ptr, content, conflictMode);
+	}
+
+	private void appendSettings(long ptr, String content, int conflictMode) throws BarcodeReaderException {
+		settingsFingerprint = foldSettings(settingsFingerprint, content, conflictMode);
+		nativeAppendTplStringToRuntimeSettings(ptr, content, conflictMode);
+	}
+
+	private void resetSettings(long ptr) {
+		settingsFingerprint = 0;
+		nativeResetRuntimeSettings(ptr);
+	}
+
+	private static long foldSettings(long previous, String content, int conflictMode) {
+		byte[] bytes = (content == null ? "" : content).getBytes(StandardCharsets.UTF_8);
+		return DecodeResultCache.murmur3(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN),
+				previous * 31 + conflictMode)[0];
+	}
+
+	/**
+	 * Identifies the settings the next decode runs with: the template strings loaded, directly or from the
+	 * attached registry, and the intermediate result types. Readers loaded with the same strings in the
+	 * same order report the same value.
+	 */
+	long settingsFingerprint() throws BarcodeReaderException {
+		prepare();
+		int resultTypes = intermediateResultTypes | (diagnosticsEnabled ? DecodeDiagnostics.STAGE_TYPES : 0);
+		return settingsFingerprint ^ (resultTypes * 0x9e3779b97f4a7c15L);
+	}
+
+	/**
+	 * Returns the native handle after bringing the loaded templates up to date with the registry.
+	 */
+	private long prepare() throws BarcodeReaderException {
+		long ptr = handle();
+		TemplateRegistry registry = templateRegistry;
+		if (registry != null) {
+			TemplateRegistry.Snapshot snapshot = registry.snapshot();
+			if (snapshot != appliedTemplates) {
+				appliedTemplates = null;
+				loadTemplates(snapshot.getContents());
+				applyIntermediateResultTypes(ptr);
+				appliedTemplates = snapshot;
+			}
+		}
+		return ptr;
+	}
+
+	/**
+	 * Runs a native decode, recording it in the attached metrics and as a {@link DecodeEvent}, if either is
+	 * enabled.
+	 * 
+	 * @param kind the input kind reported in the event
+	 */
+	private BarcodeResult[] decode(String kind, int width, int height, String templateName, long bytes,
+			NativeDecode decoder) throws BarcodeReaderException {
+		long ptr = prepare();
+		DecodeMetrics metrics = warmingUp ? null : decodeMetrics;
+		Object event = DECODE_EVENTS && !warmingUp ? DecodeEvent.start() : null;
+		if (metrics == null && event == null && !diagnosticsEnabled) {
+			return decoder.decode(ptr);
+		}
+		long start = System.nanoTime();
+		try {
+			BarcodeResult[] results = timedDecode(ptr, decoder);
+			int resultCount = results == null ? 0 : results.length;
+			if (diagnosticsEnabled) {
+				captureDiagnostics(ptr, templateName, 0, resultCount);
+			}
+			if (event != null) {
+				DecodeEvent.finish(event, kind, width, height, templateName, bytes, 0, resultCount);
+			}
+			if (metrics != null) {
+				metrics.record(templateName, System.nanoTime() - start, resultCount, bytes);
+			}
+			return results;
+		} catch (BarcodeReaderException e) {
+			if (diagnosticsEnabled) {
+				captureDiagnostics(ptr, templateName, e.getErrorCode(), 0);
+			}
+			if (event != null) {
+				DecodeEvent.finish(event, kind, width, height, templateName, bytes, e.getErrorCode(), 0);
+			}
+			if (metrics != null) {
+				metrics.recordError(templateName, System.nanoTime() - start, e.getErrorCode(), bytes);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs a native decode with the JNI phase timers switched on while diagnostics are enabled.
+	 */
+	private BarcodeResult[] timedDecode(long ptr, NativeDecode decoder) throws BarcodeReaderException {
+		if (!diagnosticsEnabled) {
+			return decoder.decode(ptr);
+		}
+		nativeSetDecodeTiming(true);
+		try {
+			return decoder.decode(ptr);
+		} finally {
+			nativeSetDecodeTiming(false);
+		}
+	}
+
+	/**
+	 * Reads the timing the JNI layer kept for the decode that just ran on this thread, with the stages
+	 * that produced intermediate results.
+	 */
+	private void captureDiagnostics(long ptr, String templateName, int returnCode, int resultCount) {
+		lastDiagnostics = new DecodeDiagnostics(templateName, returnCode, resultCount, nativeGetLastDecodeTiming(),
+				nativeGetStageSummary(ptr));
+	}
+
+	/**
+	 * Commits the event of a batch decode with the first per-image error code and the total result count.
+	 */
+	private static void finishBatchEvent(Object event, String kind, String templateName, long bytes,
+			BatchDecodeResult batch) {
+		int resultCount = batch == null ? 0 : batch.getTotalResultCount();
+		DecodeEvent.finish(event, kind, 0, 0, templateName, bytes, firstErrorCode(batch), resultCount);
+	}
+
+	private static int firstErrorCode(BatchDecodeResult batch) {
+		int returnCode = 0;
+		for (int i = 0; batch != null && i < batch.size() && returnCode == 0; i++) {
+			returnCode = batch.getErrorCode(i);
+		}
+		return returnCode;
+	}
+
+	private static boolean isJfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, NativeBarcodeReader.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Records each image of a batch, sharing the batch time equally between them.
+	 */
+	private static void recordBatch(DecodeMetrics metrics, String templateName, long nanos, BatchDecodeResult batch,
+			long[] bytes) {
+		int size = batch.size();
+		long perImage = size == 0 ? 0 : nanos / size;
+		for (int i = 0; i < size; i++) {
+			int errorCode = batch.getErrorCode(i);
+			if (errorCode == 0) {
+				metrics.record(templateName, perImage, batch.getResultCount(i), bytes[i]);
+			} else {
+				metrics.recordError(templateName, perImage, errorCode, bytes[i]);
+			}
+		}
+	}
+
+	private long handle() {
+		long ptr = nativePtr;
+		if (ptr == 0) {
+			throw new IllegalStateException("Reader is closed");
+		}
+		return ptr;
 	}
 
 	public String getVersion() {
@@ -42,11 +937,121 @@ public class NativeBarcodeReader {
 
 	private native int nativeInitLicense(long nativePtr, String license);
 	
-	private native long nativeCreateInstance();
+	private static native long nativeCreateInstance();
 	
-	private native void nativeDestroyInstance(long nativePtr);
+	private static native void nativeDestroyInstance(long nativePtr);
 	
-	private native void nativeDecodeFile(long nativePtr, String fileName);
+	private native BarcodeResult[] nativeDecodeFile(long nativePtr, String fileName, String templateName)
+			throws BarcodeReaderException;
+
+	private native BarcodeResult[] nativeDecodeFileInMemory(long nativePtr, byte[] data, int offset, int length,
+			String templateName) throws BarcodeReaderException;
+
+	private native BarcodeResult[] nativeDecodeFileInMemoryDirect(long nativePtr, ByteBuffer buffer, int offset,
+			int length, String templateName) throws BarcodeReaderException;
+
+	private native BarcodeResult[] nativeDecodeBuffer(long nativePtr, ByteBuffer buffer, int offset, int width,
+			int height, int stride, int pixelFormat, String templateName) throws BarcodeReaderException;
+
+	private native BatchDecodeResult nativeDecodeFileBatch(long nativePtr, String[] fileNames, String templateName);
+
+	private native BatchDecodeResult nativeDecodeMemoryBatch(long nativePtr, ByteBuffer[] images, int[] offsets,
+			int[] lengths, String templateName);
+
+	private native void nativeInitRuntimeSettingsWithString(long nativePtr, String content, int conflictMode)
+			throws BarcodeReaderException;
+
+	private native void nativeAppendTplStringToRuntimeSettings(long nativePtr, String content, int conflictMode)
+			throws BarcodeReaderException;
+
+	private native void nativeResetRuntimeSettings(long nativePtr);
+
+	private native String[] nativeGetParameterTemplateNames(long nativePtr);
+
+	private native int[] nativeSetRegion(long nativePtr, int[] region) throws BarcodeReaderException;
+
+	private native void nativeSetIntermediateResultTypes(long nativePtr, int resultTypes)
+			throws BarcodeReaderException;
+
+	private native long nativeGetIntermediateResults(long nativePtr) throws BarcodeReaderException;
+
+	private native BarcodeResult[] nativeDecodeIntermediateResults(long nativePtr, long resultsPtr,
+			String templateName) throws BarcodeReaderException;
+
+	private static native int[] nativeGetIntermediateResultTypes(long resultsPtr);
+
+	static native void nativeFreeIntermediateResults(long resultsPtr);
+
+	private native long nativeStartFrameDecoding(long nativePtr, int[] parameters, float threshold,
+			FrameResultListener listener, boolean uniqueBarcodes) throws BarcodeReaderException;
+
+	private native int nativeAppendFrame(long nativePtr, long frameContext, ByteBuffer frame, int offset);
+
+	private native int nativeGetLengthOfFrameQueue(long nativePtr);
+
+	private static native void nativeStopFrameDecoding(long nativePtr, long frameContext)
+			throws BarcodeReaderException;
 
 	private native String nativeGetVersion();
+
+	private static native void nativeInitGlobalLicense(String license) throws BarcodeReaderException;
+
+	static native int nativeSetMaxConcurrentInstanceCount(int countForThisDevice, int countForThisProcess,
+			int timeout);
+
+	static native long nativeGetInstance();
+
+	static native void nativeRecycleInstance(long nativePtr);
+
+	static native int[] nativeGetInstancePoolStatus();
+
+	private static native long[] nativeGetMemoryStats();
+
+	private static native void nativeSetDecodeTiming(boolean enabled);
+
+	private static native long[] nativeGetLastDecodeTiming();
+
+	private native int[] nativeGetStageSummary(long nativePtr);
+
+	/**
+	 * Releases a native instance, either from {@link #close()} or from the cleaner once the reader is
+	 * unreachable. Must not reference the reader itself.
+	 */
+	private static final class Releaser implements Runnable {
+
+		private final long nativePtr;
+		private final NativeBarcodeReaderPool pool;
+		volatile long frameContext;
+		volatile boolean closed;
+
+		Releaser(long nativePtr, NativeBarcodeReaderPool pool) {
+			this.nativePtr = nativePtr;
+			this.pool = pool;
+		}
+
+		@Override
+		public void run() {
+			if (!closed) {
+				LEAKED_READERS.incrementAndGet();
+				if (pool != null) {
+					// Idle readers are held by the pool, so only a borrowed one can become unreachable
+					pool.reclaimLeaked();
+				}
+			}
+			if (frameContext != 0) {
+				try {
+					nativeStopFrameDecoding(nativePtr, frameContext);
+				} catch (BarcodeReaderException e) {
+					// The instance is released below regardless
+				}
+				frameContext = 0;
+			}
+			if (nativePtr != 0) {
+				if (pool != null)
+					nativeRecycleInstance(nativePtr);
+				else
+					nativeDestroyInstance(nativePtr);
+			}
+		}
+	}
 }
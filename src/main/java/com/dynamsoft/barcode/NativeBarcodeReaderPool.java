@@ -0,0 +1,533 @@
+package com.dynamsoft.barcode;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of {@link NativeBarcodeReader} instances backed by the native DBR instance pool
+ * ({@code DBR_GetInstance} / {@code DBR_RecycleInstance}).
+ *
+ * Instances are created lazily up to {@code maxInstances} and kept idle between borrows, so license
+ * checks and instance setup are paid once per instance rather than once per decode. Readers are
+ * borrowed either explicitly:
+ *
+ * <pre>
+ * NativeBarcodeReader reader = pool.borrow();
+ * try {
+ * 	reader.decodeFile(fileName);
+ * } finally {
+ * 	pool.release(reader);
+ * }
+ * </pre>
+ *
+ * or through a {@link Lease} in a try-with-resources block.
+ *
+ * The {@code decodeAsync} methods run the borrow and the decode on a small set of platform threads owned
+ * by the pool, so callers on virtual threads or event loops never block inside a native call:
+ *
+ * <pre>
+ * pool.decodeFileAsync(fileName, "").thenAccept(results -&gt; ...);
+ * </pre>
+ */
+public class NativeBarcodeReaderPool implements AutoCloseable {
+
+	private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+	/** Decodes that may wait for a decode thread before further ones are rejected. */
+	private static final int ASYNC_QUEUE_CAPACITY = 1024;
+
+	private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+	private final int maxInstances;
+	private final long timeoutNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private final ArrayDeque<NativeBarcodeReader> idle = new ArrayDeque<NativeBarcodeReader>();
+
+	private volatile TemplateRegistry templateRegistry;
+	private volatile DecodeMetrics decodeMetrics;
+
+	// Guarded by lock
+	private int created;
+	private int busy;
+	private boolean closed;
+	private long borrowCount;
+	private long waitCount;
+	private long totalWaitNanos;
+	private long maxWaitNanos;
+	private ThreadPoolExecutor asyncExecutor;
+
+	public NativeBarcodeReaderPool(String license, int maxInstances) throws BarcodeReaderException {
+		this(license, maxInstances, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Creates a pool and initializes the license for concurrent instance mode.
+	 *
+	 * The native instance limit is process-wide, so only one pool should be created per process.
+	 *
+	 * @param timeoutMillis how long {@link #borrow()} waits for a free instance
+	 */
+	public NativeBarcodeReaderPool(String license, int maxInstances, long timeoutMillis)
+			throws BarcodeReaderException {
+		if (maxInstances < 1) {
+			throw new IllegalArgumentException("maxInstances must be positive: " + maxInstances);
+		}
+		this.maxInstances = maxInstances;
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		// The instance count must be set before the license is initialized
+		int ret = NativeBarcodeReader.nativeSetMaxConcurrentInstanceCount(maxInstances, maxInstances,
+				(int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+		if (ret != EnumErrorCode.DBR_OK) {
+			throw new BarcodeReaderException(ret, "Failed to set the maximum instance count to " + maxInstances);
+		}
+		if (license != null) {
+			NativeBarcodeReader.initLicense(license);
+		}
+	}
+
+	public int getMaxInstances() {
+		return maxInstances;
+	}
+
+	/**
+	 * Attaches a template registry to every reader handed out by this pool. Readers pick up the
+	 * registry, and any later swap of its templates, on their next decode.
+	 */
+	public void setTemplateRegistry(TemplateRegistry registry) {
+		templateRegistry = registry;
+	}
+
+	public TemplateRegistry getTemplateRegistry() {
+		return templateRegistry;
+	}
+
+	/**
+	 * Records the decodes of every reader handed out by this pool in {@code metrics}.
+	 */
+	public void setDecodeMetrics(DecodeMetrics metrics) {
+		decodeMetrics = metrics;
+	}
+
+	public DecodeMetrics getDecodeMetrics() {
+		return decodeMetrics;
+	}
+
+	public NativeBarcodeReader borrow() throws BarcodeReaderException, InterruptedException {
+		return borrow(timeoutNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Borrows an idle reader, creating one if the pool has not reached its limit, or waits for one to
+	 * be released.
+	 *
+	 * @throws BarcodeReaderException if no instance becomes available in time
+	 */
+	public NativeBarcodeReader borrow(long timeout, TimeUnit unit) throws BarcodeReaderException, InterruptedException {
+		long start = System.nanoTime();
+		long remaining = unit.toNanos(timeout);
+		boolean waited = false;
+
+		lock.lock();
+		try {
+			while (true) {
+				ensureOpen();
+				NativeBarcodeReader reader = idle.pollFirst();
+				if (reader != null) {
+					return checkOut(reader, waited, start);
+				}
+				if (created < maxInstances) {
+					// Reserve a slot so the native call can run outside the lock
+					created++;
+					break;
+				}
+				if (remaining <= 0) {
+					recordWait(System.nanoTime() - start);
+					throw new BarcodeReaderException(EnumErrorCode.DMERR_INSTANCE_COUNT_OVER_LIMIT,
+							"Timed out waiting for a reader instance (max " + maxInstances + ")");
+				}
+				waited = true;
+				remaining = available.awaitNanos(remaining);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		long nativePtr = NativeBarcodeReader.nativeGetInstance();
+
+		lock.lock();
+		try {
+			if (nativePtr == 0) {
+				created--;
+				available.signal();
+				throw new BarcodeReaderException(EnumErrorCode.DMERR_INSTANCE_COUNT_OVER_LIMIT,
+						"No reader instance available from the native pool");
+			}
+			NativeBarcodeReader reader = new NativeBarcodeReader(nativePtr, this);
+			if (closed) {
+				created--;
+				reader.close();
+				ensureOpen();
+			}
+			return checkOut(reader, waited, start);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Creates every instance up to {@code maxInstances} and warms each one up with
+	 * {@link NativeBarcodeReader#warmUp(int)}, so the first borrows neither create instances nor hit cold
+	 * native code. Call before the service starts taking traffic. The warm-up decodes are not recorded
+	 * in the pool's {@link DecodeMetrics}.
+	 */
+	public void warmUp(int iterations) throws BarcodeReaderException, InterruptedException {
+		List<NativeBarcodeReader> readers = new ArrayList<NativeBarcodeReader>(maxInstances);
+		try {
+			for (int i = 0; i < maxInstances; i++) {
+				readers.add(borrow());
+			}
+			for (NativeBarcodeReader reader : readers) {
+				reader.warmUp(iterations);
+			}
+		} finally {
+			for (NativeBarcodeReader reader : readers) {
+				release(reader);
+			}
+		}
+	}
+
+	/**
+	 * Returns a reader obtained from {@link #borrow()} to the pool. Frame decoding is stopped and the
+	 * reader's runtime settings, intermediate result types and diagnostics are reset, so the next borrower
+	 * gets a reader in its initial state. A reader that cannot be reset is closed instead.
+	 */
+	public void release(NativeBarcodeReader reader) {
+		lock.lock();
+		try {
+			if (reader.pool != this || !reader.borrowed) {
+				throw new IllegalArgumentException("Reader was not borrowed from this pool");
+			}
+			reader.borrowed = false;
+		} finally {
+			lock.unlock();
+		}
+
+		// Reset outside the lock, since it calls into the native instance
+		boolean reusable = false;
+		if (!reader.isClosed()) {
+			try {
+				reader.resetForPool();
+				reusable = true;
+			} catch (BarcodeReaderException e) {
+				// Dropped below rather than handed out in an unknown state
+			}
+		}
+
+		lock.lock();
+		try {
+			busy--;
+			if (closed || !reusable) {
+				created--;
+				reader.close();
+			} else {
+				idle.addFirst(reader);
+				available.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs {@code task} on one of the pool's decode threads with a borrowed reader, which is released once
+	 * the task returns.
+	 *
+	 * The pool starts one decode thread per core, but never more than {@code maxInstances}, since
+	 * further threads would only wait for a reader. Decodes beyond those queue, up to a fixed bound.
+	 *
+	 * @return a future completed with the results, or exceptionally with the task's exception, a
+	 *         {@link BarcodeReaderException} if no reader became available in time, or a
+	 *         {@link RejectedExecutionException} if the queue is full or the pool is closed
+	 */
+	public CompletableFuture<BarcodeResult[]> decodeAsync(final DecodeTask task) {
+		final CompletableFuture<BarcodeResult[]> future = new CompletableFuture<BarcodeResult[]>();
+		Runnable decode = () -> {
+			if (future.isDone()) {
+				// Cancelled while queued
+				return;
+			}
+			try {
+				NativeBarcodeReader reader = borrow();
+				try {
+					future.complete(task.decode(reader));
+				} finally {
+					release(reader);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.completeExceptionally(e);
+			} catch (Exception | Error e) {
+				future.completeExceptionally(e);
+			}
+		};
+		try {
+			asyncExecutor().execute(decode);
+		} catch (RejectedExecutionException | IllegalStateException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	public CompletableFuture<BarcodeResult[]> decodeFileAsync(final String fileName, final String templateName) {
+		return decodeAsync(reader -> reader.decodeFile(fileName, templateName));
+	}
+
+	/**
+	 * Decodes an encoded image asynchronously. The array must not be modified until the future completes.
+	 */
+	public CompletableFuture<BarcodeResult[]> decodeFileInMemoryAsync(final byte[] data, final String templateName) {
+		return decodeAsync(reader -> reader.decodeFileInMemory(data, 0, data.length, templateName));
+	}
+
+	/**
+	 * Decodes raw pixels asynchronously. The buffer must not be modified until the future completes.
+	 */
+	public CompletableFuture<BarcodeResult[]> decodeBufferAsync(final ByteBuffer buffer, final int width,
+			final int height, final int stride, final int pixelFormat, final String templateName) {
+		return decodeAsync(reader -> reader.decodeBuffer(buffer, width, height, stride, pixelFormat, templateName));
+	}
+
+	/**
+	 * Borrows a reader wrapped in a {@link Lease} that returns it when closed.
+	 */
+	public Lease lease() throws BarcodeReaderException, InterruptedException {
+		return new Lease(borrow());
+	}
+
+	public Stats getStats() {
+		int[] status = NativeBarcodeReader.nativeGetInstancePoolStatus();
+		lock.lock();
+		try {
+			return new Stats(idle.size(), busy, created, borrowCount, waitCount, totalWaitNanos, maxWaitNanos,
+					status);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Recycles all idle instances. Readers still on loan are recycled when they are released. Queued
+	 * asynchronous decodes fail with {@link IllegalStateException}.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			if (closed)
+				return;
+			closed = true;
+			if (asyncExecutor != null) {
+				asyncExecutor.shutdown();
+			}
+			NativeBarcodeReader reader;
+			while ((reader = idle.pollFirst()) != null) {
+				created--;
+				reader.close();
+			}
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gives back the slot of a borrowed reader that became unreachable without being released. Its native
+	 * instance has already been recycled by the cleaner.
+	 */
+	void reclaimLeaked() {
+		lock.lock();
+		try {
+			busy--;
+			created--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private NativeBarcodeReader checkOut(NativeBarcodeReader reader, boolean waited, long start) {
+		TemplateRegistry registry = templateRegistry;
+		if (reader.getTemplateRegistry() != registry) {
+			reader.setTemplateRegistry(registry);
+		}
+		reader.setDecodeMetrics(decodeMetrics);
+		reader.borrowed = true;
+		busy++;
+		borrowCount++;
+		if (waited) {
+			recordWait(System.nanoTime() - start);
+		}
+		return reader;
+	}
+
+	private ThreadPoolExecutor asyncExecutor() {
+		lock.lock();
+		try {
+			ensureOpen();
+			if (asyncExecutor == null) {
+				int threads = Math.min(maxInstances, Runtime.getRuntime().availableProcessors());
+				final String prefix = "dbr-decode-" + POOL_SEQUENCE.incrementAndGet() + "-";
+				final AtomicInteger threadSequence = new AtomicInteger();
+				asyncExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+						new ArrayBlockingQueue<Runnable>(ASYNC_QUEUE_CAPACITY), runnable -> {
+							Thread thread = new Thread(runnable, prefix + threadSequence.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						});
+				asyncExecutor.allowCoreThreadTimeOut(true);
+			}
+			return asyncExecutor;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void recordWait(long nanos) {
+		waitCount++;
+		totalWaitNanos += nanos;
+		maxWaitNanos = Math.max(maxWaitNanos, nanos);
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("Pool is closed");
+		}
+	}
+
+	/**
+	 * A borrowed reader that is returned to its pool by {@link #close()}.
+	 */
+	public final class Lease implements AutoCloseable {
+
+		private NativeBarcodeReader reader;
+
+		private Lease(NativeBarcodeReader reader) {
+			this.reader = reader;
+		}
+
+		public NativeBarcodeReader reader() {
+			if (reader == null) {
+				throw new IllegalStateException("Lease is closed");
+			}
+			return reader;
+		}
+
+		@Override
+		public void close() {
+			if (reader != null) {
+				release(reader);
+				reader = null;
+			}
+		}
+	}
+
+	/**
+	 * A point-in-time snapshot of pool usage. The native figures come from
+	 * {@code DBR_GetInstancePoolStatus}.
+	 */
+	public static final class Stats {
+
+		private final int idle;
+		private final int busy;
+		private final int created;
+		private final long borrowCount;
+		private final long waitCount;
+		private final long totalWaitNanos;
+		private final long maxWaitNanos;
+		private final int authorizedInstances;
+		private final int remainingInstances;
+		private final int waitingCreationInstances;
+		private final int nativeWaitOccurrences;
+
+		Stats(int idle, int busy, int created, long borrowCount, long waitCount, long totalWaitNanos,
+				long maxWaitNanos, int[] nativeStatus) {
+			this.idle = idle;
+			this.busy = busy;
+			this.created = created;
+			this.borrowCount = borrowCount;
+			this.waitCount = waitCount;
+			this.totalWaitNanos = totalWaitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+			this.authorizedInstances = nativeStatus[0];
+			this.remainingInstances = nativeStatus[1];
+			this.waitingCreationInstances = nativeStatus[2];
+			this.nativeWaitOccurrences = nativeStatus[3];
+		}
+
+		public int getIdle() {
+			return idle;
+		}
+
+		public int getBusy() {
+			return busy;
+		}
+
+		public int getCreated() {
+			return created;
+		}
+
+		public long getBorrowCount() {
+			return borrowCount;
+		}
+
+		/** Number of borrows that had to wait for an instance to be released. */
+		public long getWaitCount() {
+			return waitCount;
+		}
+
+		public long getTotalWaitNanos() {
+			return totalWaitNanos;
+		}
+
+		public long getMaxWaitNanos() {
+			return maxWaitNanos;
+		}
+
+		public int getAuthorizedInstances() {
+			return authorizedInstances;
+		}
+
+		public int getRemainingInstances() {
+			return remainingInstances;
+		}
+
+		public int getWaitingCreationInstances() {
+			return waitingCreationInstances;
+		}
+
+		public int getNativeWaitOccurrences() {
+			return nativeWaitOccurrences;
+		}
+
+		@Override
+		public String toString() {
+			return "idle=" + idle + ", busy=" + busy + ", created=" + created + ", borrows=" + borrowCount
+					+ ", waits=" + waitCount + ", totalWaitMs=" + TimeUnit.NANOSECONDS.toMillis(totalWaitNanos)
+					+ ", maxWaitMs=" + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + ", authorized="
+					+ authorizedInstances + ", remaining=" + remainingInstances;
+		}
+	}
+}
@@ -1,19 +1,68 @@
 package com.dynamsoft.barcode;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.DigestInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 
+/**
+ * Extracts the bundled native libraries and loads them.
+ *
+ * Libraries are extracted into a directory named after the hash of their contents, so different
+ * versions never overwrite each other and an up-to-date directory is reused as is. The hashes come from
+ * the {@code dbr.manifest} file written next to the libraries by the Maven build ({@link #main}) or the
+ * CMake install step; without it they are computed from the jar resources. Extracted files whose size
+ * and modification time match the last verification are trusted without hashing them again.
+ *
+ * That is only safe because nobody else can write to the directory: it is kept per user, created with
+ * owner-only permissions and checked for owner and permissions before use. A directory that fails the
+ * check, such as one planted by another user, is not used at all; the libraries then go to a fresh
+ * temporary directory.
+ *
+ * Many JVMs may start at once on the same host. Extraction runs under a file lock on the extraction
+ * directory and each library is renamed into place atomically, so they share one extracted copy.
+ *
+ * The PDF library is only extracted and loaded when a PDF is first decoded.
+ */
 public class NativeLoader {
-	
-	
+
+	private static final String MANIFEST_NAME = "dbr.manifest";
+	private static final String STAMPS_NAME = ".verified";
+	private static final String LOCK_NAME = ".lock";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Resolved by load() and used again for the optional libraries
+	private static String libraryPath;
+	private static File extractionDir;
+	private static Map<String, ManifestEntry> manifest;
+	// False when the jar has no manifest and entries are hashed from the resources as needed
+	private static boolean manifestComplete;
+	private static volatile boolean pdfLoaded;
+
 	private static synchronized boolean loadNativeLibrary(String path, String name) {
 		File libPath = new File(path, name);
 		if (libPath.exists()) {
@@ -29,29 +78,33 @@ public class NativeLoader {
 			return false;
 	}
 
-	private static boolean extractResourceFiles(String dbrNativeLibraryPath, String dbrNativeLibraryName,
-			String tempFolder) throws IOException {
-		String[] filenames = null;
+	private static String[] requiredLibraries() {
 		if (Utils.isWindows()) {
-			filenames = new String[] {"vcomp110.dll", "DynamicPdfx64.dll", "DynamsoftBarcodeReaderx64.dll", "dbr.dll", "DynamsoftLicClientx64.dll", "DynamsoftLicenseClientx64.dll"};
+			return new String[] {"vcomp110.dll", "DynamsoftBarcodeReaderx64.dll", "dbr.dll", "DynamsoftLicClientx64.dll", "DynamsoftLicenseClientx64.dll"};
 		}
 		else if (Utils.isLinux()) {
-			filenames = new String[] {"libDynamicPdf.so", "libDynamsoftBarcodeReader.so", "libdbr.so", "libDynamLicenseClient.so", "libDynamsoftLicenseClient.so"};
+			return new String[] {"libDynamsoftBarcodeReader.so", "libdbr.so", "libDynamLicenseClient.so", "libDynamsoftLicenseClient.so"};
 		}
 		else if (Utils.isMac()) {
-			filenames = new String[] {"libDynamsoftBarcodeReader.dylib", "libdbr.jnilib", "libDynamsoftLicenseClient.dylib", "libDynamicPdf.dylib"};
+			return new String[] {"libDynamsoftBarcodeReader.dylib", "libdbr.jnilib", "libDynamsoftLicenseClient.dylib"};
 		}
-		
-		boolean ret = true;
-		
-		for (String file : filenames) {
-			ret &= extractAndLoadLibraryFile(dbrNativeLibraryPath, file, tempFolder);
+		return new String[0];
+	}
+
+	private static String[] pdfLibraries() {
+		if (Utils.isWindows()) {
+			return new String[] {"DynamicPdfx64.dll"};
 		}
-		
-		return ret;
+		else if (Utils.isLinux()) {
+			return new String[] {"libDynamicPdf.so"};
+		}
+		else if (Utils.isMac()) {
+			return new String[] {"libDynamicPdf.dylib"};
+		}
+		return new String[0];
 	}
 
-	public static boolean load() throws Exception {
+	public static synchronized boolean load() throws Exception {
 
 		// Load the os-dependent library from the jar file
 		String dbrNativeLibraryName = System.mapLibraryName("dbr");
@@ -74,82 +127,441 @@ public class NativeLoader {
 			throw new Exception("Error loading native library: " + dbrNativeLibraryPath + "/" + dbrNativeLibraryName);
 		}
 
-		// Temporary library folder
-		String tempFolder = new File(System.getProperty("java.io.tmpdir")).getAbsolutePath();
+		libraryPath = dbrNativeLibraryPath;
+		manifest = readManifest(dbrNativeLibraryPath);
+		extractionDir = extractionDirectory(directoryKey(manifest));
 
-		// Extract resource files
-		return extractResourceFiles(dbrNativeLibraryPath, dbrNativeLibraryName, tempFolder);
+		return extractAndLoad(requiredLibraries());
 	}
 
-	static String md5sum(InputStream input) throws IOException {
-		BufferedInputStream in = new BufferedInputStream(input);
+	/**
+	 * Extracts and loads the PDF library, once. Called before decoding a PDF; DBR finds the library next
+	 * to its own. A failed attempt is retried by the next PDF decode.
+	 *
+	 * @throws BarcodeReaderException with {@link EnumErrorCode#DBRERR_PDF_DLL_MISSING} if the library
+	 *             could not be extracted or loaded
+	 */
+	static void ensurePdfSupport() throws BarcodeReaderException {
+		if (pdfLoaded) {
+			return;
+		}
+		synchronized (NativeLoader.class) {
+			// Libraries not loaded by load() are found by the platform, and so is the PDF one
+			if (pdfLoaded || extractionDir == null) {
+				return;
+			}
+			String message = "failed to load the PDF library";
+			try {
+				if (extractAndLoad(pdfLibraries())) {
+					pdfLoaded = true;
+					return;
+				}
+			} catch (IOException e) {
+				message += ": " + e.getMessage();
+			}
+			throw new BarcodeReaderException(EnumErrorCode.DBRERR_PDF_DLL_MISSING, message);
+		}
+	}
 
-		try {
-			MessageDigest digest = java.security.MessageDigest.getInstance("MD5");
-			DigestInputStream digestInputStream = new DigestInputStream(in, digest);
-			for (; digestInputStream.read() >= 0;) {
+	/**
+	 * Loads the PDF library first if the named file starts with the {@code %PDF} signature.
+	 */
+	static void ensurePdfSupport(String fileName) throws BarcodeReaderException {
+		if (!pdfLoaded && isPdf(fileName)) {
+			ensurePdfSupport();
+		}
+	}
 
+	/**
+	 * Whether a file starts with the {@code %PDF} signature. A file that cannot be read is not a PDF; the
+	 * decode reports why.
+	 */
+	static boolean isPdf(String fileName) {
+		if (fileName == null) {
+			return false;
+		}
+		try (InputStream in = new FileInputStream(fileName)) {
+			byte[] header = new byte[4];
+			int length = 0;
+			int read;
+			while (length < header.length && (read = in.read(header, length, header.length - length)) > 0) {
+				length += read;
 			}
-			ByteArrayOutputStream md5out = new ByteArrayOutputStream();
-			md5out.write(digest.digest());
-			return md5out.toString();
-		} catch (NoSuchAlgorithmException e) {
-			throw new IllegalStateException("MD5 algorithm is not available: " + e);
-		} finally {
-			in.close();
+			return isPdf(header, 0, length);
+		} catch (IOException e) {
+			return false;
 		}
 	}
 
-	private static boolean extractAndLoadLibraryFile(String libFolderForCurrentOS, String libraryFileName,
-			String targetFolder) {
-		String nativeLibraryFilePath = libFolderForCurrentOS + "/" + libraryFileName;
+	/**
+	 * Whether the bytes at {@code offset} start with the {@code %PDF} signature.
+	 */
+	static boolean isPdf(byte[] data, int offset, int length) {
+		return length >= 4 && data[offset] == '%' && data[offset + 1] == 'P' && data[offset + 2] == 'D'
+				&& data[offset + 3] == 'F';
+	}
 
-		String extractedLibFileName = libraryFileName;
-		File extractedLibFile = new File(targetFolder, extractedLibFileName);
+	static boolean isPdf(ByteBuffer buffer) {
+		int position = buffer.position();
+		return buffer.remaining() >= 4 && buffer.get(position) == '%' && buffer.get(position + 1) == 'P'
+				&& buffer.get(position + 2) == 'D' && buffer.get(position + 3) == 'F';
+	}
 
-		try {
-			if (extractedLibFile.exists()) {
-				// test md5sum value
-				String md5sum1 = md5sum(NativeBarcodeReader.class.getResourceAsStream(nativeLibraryFilePath));
-				String md5sum2 = md5sum(new FileInputStream(extractedLibFile));
+	/**
+	 * Returns the extraction directory of the current user, or a new temporary one if that directory
+	 * cannot be shown to be private: its libraries and stamps are trusted without hashing.
+	 */
+	private static File extractionDirectory(String key) throws IOException {
+		String user = System.getProperty("user.name", "").replaceAll("[^A-Za-z0-9._-]", "_");
+		File dir = new File(System.getProperty("java.io.tmpdir"), "dynamsoft-barcode-" + user + "-" + key);
+		if (isPrivateDirectory(dir.toPath())) {
+			return dir;
+		}
+		System.err.println(dir.getAbsolutePath()
+				+ " is not private to the current user; extracting to a temporary directory");
+		return Files.createTempDirectory("dynamsoft-barcode-").toFile();
+	}
 
-				if (md5sum1.equals(md5sum2)) {
-					return loadNativeLibrary(targetFolder, extractedLibFileName);
+	/**
+	 * Creates {@code dir} if needed and checks that only the current user can write to it: it must be a
+	 * real directory owned by this user and, where POSIX permissions exist, closed to group and others.
+	 */
+	static boolean isPrivateDirectory(Path dir) {
+		try {
+			boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+			try {
+				if (posix) {
+					Files.createDirectory(dir,
+							PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
 				} else {
-					// remove old native library file
-					boolean deletionSucceeded = extractedLibFile.delete();
-					if (!deletionSucceeded) {
-						throw new IOException(
-								"failed to remove existing native library file: " + extractedLibFile.getAbsolutePath());
-					}
+					Files.createDirectory(dir);
+				}
+			} catch (FileAlreadyExistsException e) {
+				// Checked below like a directory created here
+			}
+			if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+				return false;
+			}
+			UserPrincipal user = dir.getFileSystem().getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+			if (!user.equals(Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS))) {
+				return false;
+			}
+			if (posix) {
+				Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS);
+				permissions.removeAll(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+						PosixFilePermission.OWNER_EXECUTE));
+				return permissions.isEmpty();
+			}
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	private static boolean extractAndLoad(String[] filenames) throws IOException {
+		if (!extractionDir.isDirectory() && !extractionDir.mkdirs() && !extractionDir.isDirectory()) {
+			throw new IOException("failed to create native library directory: " + extractionDir.getAbsolutePath());
+		}
+
+		// Fast path: another process, or an earlier start, has already extracted everything
+		boolean ret = true;
+		if (!isVerified(readStamps(), filenames)) {
+			ret = extractLocked(filenames);
+		}
+
+		for (String file : filenames) {
+			if (new File(extractionDir, file).exists()) {
+				ret &= loadNativeLibrary(extractionDir.getAbsolutePath(), file);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Extracts the missing or damaged libraries while holding an exclusive lock on the extraction
+	 * directory, so concurrent JVMs extract each library once and then share it. Files are written under
+	 * a temporary name and renamed into place, so a library is never seen half written.
+	 */
+	// The lock is only held for the duration of the block, never read
+	@SuppressWarnings("try")
+	private static boolean extractLocked(String[] filenames) throws IOException {
+		File lockFile = new File(extractionDir, LOCK_NAME);
+		try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+			// Whoever held the lock before may have done the work already
+			Properties stamps = readStamps();
+			boolean ret = true;
+			boolean stampsChanged = false;
+			for (String file : filenames) {
+				File extracted = new File(extractionDir, file);
+				if (isVerified(stamps, file)) {
+					continue;
 				}
+				if (!extractLibraryFile(file, extracted)) {
+					ret = false;
+					continue;
+				}
+				stamps.setProperty(file, stampOf(extracted));
+				stampsChanged = true;
+			}
+			if (stampsChanged) {
+				writeStamps(stamps);
 			}
+			return ret;
+		}
+	}
 
-			// Extract file into the current directory
-			InputStream reader = NativeBarcodeReader.class.getResourceAsStream(nativeLibraryFilePath);
-			FileOutputStream writer = new FileOutputStream(extractedLibFile);
-			byte[] buffer = new byte[1024];
-			int bytesRead = 0;
-			while ((bytesRead = reader.read(buffer)) != -1) {
-				writer.write(buffer, 0, bytesRead);
+	private static boolean isVerified(Properties stamps, String... filenames) {
+		for (String file : filenames) {
+			String stamp = stamps.getProperty(file);
+			if (stamp == null || !stamp.equals(stampOf(new File(extractionDir, file)))) {
+				return false;
 			}
+		}
+		return true;
+	}
 
-			writer.close();
-			reader.close();
+	/**
+	 * Makes sure {@code target} holds the library resource, hashing the existing file only when it is not
+	 * already known to be good.
+	 */
+	private static boolean extractLibraryFile(String libraryFileName, File target) throws IOException {
+		String nativeLibraryFilePath = libraryPath + "/" + libraryFileName;
+		ManifestEntry entry = manifestEntry(libraryFileName);
+		if (entry == null) {
+			System.err.println("Native library not found: " + nativeLibraryFilePath);
+			return false;
+		}
+
+		if (target.exists()) {
+			if (target.length() == entry.size) {
+				try (InputStream in = new FileInputStream(target)) {
+					if (entry.sha256.equals(sha256(in))) {
+						return true;
+					}
+				}
+			}
+		}
 
+		InputStream resource = NativeBarcodeReader.class.getResourceAsStream(nativeLibraryFilePath);
+		if (resource == null) {
+			System.err.println("Native library not found: " + nativeLibraryFilePath);
+			return false;
+		}
+		Path temp = Files.createTempFile(extractionDir.toPath(), libraryFileName, ".tmp");
+		try {
+			try (InputStream reader = resource; OutputStream writer = Files.newOutputStream(temp)) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int bytesRead;
+				while ((bytesRead = reader.read(buffer)) != -1) {
+					writer.write(buffer, 0, bytesRead);
+				}
+			}
+			// Temporary files are private to their owner; extracted libraries are not
+			temp.toFile().setReadable(true, false);
 			if (!System.getProperty("os.name").contains("Windows")) {
-				try {
-					Runtime.getRuntime().exec(new String[] { "chmod", "755", extractedLibFile.getAbsolutePath() })
-							.waitFor();
-				} catch (Throwable e) {
+				temp.toFile().setExecutable(true, false);
+			}
+			// Replaces a damaged copy in one step; processes that mapped it keep the old file
+			Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the build-time manifest, one {@code <sha256> <size> <name>} line per library. A jar built
+	 * without one falls back to hashing the required libraries here; the PDF library is then hashed by
+	 * {@link #manifestEntry(String)} when it is first needed.
+	 */
+	private static Map<String, ManifestEntry> readManifest(String path) throws IOException {
+		Map<String, ManifestEntry> entries = new LinkedHashMap<String, ManifestEntry>();
+		InputStream in = NativeBarcodeReader.class.getResourceAsStream(path + "/" + MANIFEST_NAME);
+		if (in != null) {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] fields = line.trim().split("\\s+", 3);
+					if (fields.length == 3) {
+						entries.put(fields[2], new ManifestEntry(fields[0], Long.parseLong(fields[1])));
+					}
 				}
 			}
+			manifestComplete = true;
+			return entries;
+		}
+
+		System.err.println(MANIFEST_NAME + " not found in " + path
+				+ "; hashing the bundled native libraries on every start");
+		manifestComplete = false;
+		for (String name : requiredLibraries()) {
+			ManifestEntry entry = hashResource(path, name);
+			if (entry != null) {
+				entries.put(name, entry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Returns the manifest entry of a library, hashing the resource if the jar has no manifest.
+	 */
+	private static ManifestEntry manifestEntry(String name) throws IOException {
+		ManifestEntry entry = manifest.get(name);
+		if (entry == null && !manifestComplete) {
+			entry = hashResource(libraryPath, name);
+			if (entry != null) {
+				manifest.put(name, entry);
+			}
+		}
+		return entry;
+	}
+
+	private static ManifestEntry hashResource(String path, String name) throws IOException {
+		InputStream resource = NativeBarcodeReader.class.getResourceAsStream(path + "/" + name);
+		if (resource == null) {
+			return null;
+		}
+		CountingDigest digest = new CountingDigest();
+		try (InputStream stream = resource) {
+			digest.update(stream);
+		}
+		return new ManifestEntry(digest.hex(), digest.size);
+	}
+
+	/**
+	 * Writes {@code dbr.manifest} into each directory under {@code args} that holds native libraries, in
+	 * the format of {@code jni/WriteManifest.cmake}. Run by the Maven build over the packaged resources,
+	 * so every jar carries a manifest.
+	 */
+	public static void main(String[] args) throws IOException {
+		for (String arg : args) {
+			File root = new File(arg);
+			File[] dirs = root.listFiles(File::isDirectory);
+			if (dirs == null) {
+				continue;
+			}
+			writeManifest(root);
+			for (File dir : dirs) {
+				writeManifest(dir);
+			}
+		}
+	}
+
+	private static void writeManifest(File dir) throws IOException {
+		File[] libraries = dir.listFiles((parent, name) -> name.endsWith(".so") || name.endsWith(".dll")
+				|| name.endsWith(".dylib") || name.endsWith(".jnilib"));
+		if (libraries == null || libraries.length == 0) {
+			return;
+		}
+		Arrays.sort(libraries);
+		StringBuilder sb = new StringBuilder();
+		for (File library : libraries) {
+			CountingDigest digest = new CountingDigest();
+			try (InputStream in = new FileInputStream(library)) {
+				digest.update(in);
+			}
+			sb.append(digest.hex()).append(' ').append(digest.size).append(' ').append(library.getName())
+					.append('\n');
+		}
+		Files.write(new File(dir, MANIFEST_NAME).toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String directoryKey(Map<String, ManifestEntry> entries) {
+		MessageDigest digest = sha256Digest();
+		for (Map.Entry<String, ManifestEntry> entry : entries.entrySet()) {
+			digest.update((entry.getKey() + " " + entry.getValue().sha256 + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		return toHex(digest.digest()).substring(0, 16);
+	}
+
+	private static String stampOf(File file) {
+		return file.exists() ? file.length() + ":" + file.lastModified() : "";
+	}
+
+	private static Properties readStamps() {
+		Properties stamps = new Properties();
+		File file = new File(extractionDir, STAMPS_NAME);
+		if (file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				stamps.load(in);
+			} catch (IOException e) {
+				// Every library is verified again
+				stamps.clear();
+			}
+		}
+		return stamps;
+	}
 
-			return loadNativeLibrary(targetFolder, extractedLibFileName);
+	private static void writeStamps(Properties stamps) {
+		try {
+			Path temp = Files.createTempFile(extractionDir.toPath(), STAMPS_NAME, ".tmp");
+			try {
+				try (OutputStream out = Files.newOutputStream(temp)) {
+					stamps.store(out, "Size and modification time of verified libraries");
+				}
+				temp.toFile().setReadable(true, false);
+				Files.move(temp, new File(extractionDir, STAMPS_NAME).toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
 		} catch (IOException e) {
 			System.err.println(e.getMessage());
-			return false;
 		}
+	}
+
+	static String sha256(InputStream input) throws IOException {
+		CountingDigest digest = new CountingDigest();
+		digest.update(input);
+		return digest.hex();
+	}
+
+	private static MessageDigest sha256Digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 algorithm is not available: " + e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	private static final class ManifestEntry {
+
+		final String sha256;
+		final long size;
+
+		ManifestEntry(String sha256, long size) {
+			this.sha256 = sha256;
+			this.size = size;
+		}
+	}
+
+	private static final class CountingDigest {
+
+		private final MessageDigest digest = sha256Digest();
+		long size;
 
+		void update(InputStream input) throws IOException {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead;
+			while ((bytesRead = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, bytesRead);
+				size += bytesRead;
+			}
+		}
+
+		String hex() {
+			return toHex(digest.digest());
+		}
 	}
 }
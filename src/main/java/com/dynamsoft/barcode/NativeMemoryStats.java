@@ -0,0 +1,56 @@
+package com.dynamsoft.barcode;
+
+/**
+ * A snapshot of native resources held through {@link NativeBarcodeReader}, returned by
+ * {@link NativeBarcodeReader#getNativeMemoryStats()}.
+ * 
+ * The counters are process-wide and maintained by the JNI layer, so they also cover pooled readers and
+ * readers that were never closed.
+ */
+public class NativeMemoryStats {
+
+	private final long liveInstances;
+	private final long outstandingResultArrays;
+	private final long bytesHeld;
+	private final long leakedReaders;
+
+	NativeMemoryStats(long[] nativeStats, long leakedReaders) {
+		this.liveInstances = nativeStats[0];
+		this.outstandingResultArrays = nativeStats[1];
+		this.bytesHeld = nativeStats[2];
+		this.leakedReaders = leakedReaders;
+	}
+
+	/** Native reader instances that have been created or borrowed and not yet destroyed or recycled. */
+	public long getLiveInstances() {
+		return liveInstances;
+	}
+
+	/**
+	 * Native result arrays that have been obtained from DBR and not yet freed, including those held by open
+	 * {@link IntermediateResults}.
+	 */
+	public long getOutstandingResultArrays() {
+		return outstandingResultArrays;
+	}
+
+	/**
+	 * Approximate bytes held in native buffers owned by the wrapper: barcode payloads of outstanding result
+	 * arrays, images kept by open {@link IntermediateResults} and the frame queues of running frame
+	 * decoders.
+	 */
+	public long getBytesHeld() {
+		return bytesHeld;
+	}
+
+	/** Readers that were released by the cleaner because they became unreachable without being closed. */
+	public long getLeakedReaders() {
+		return leakedReaders;
+	}
+
+	@Override
+	public String toString() {
+		return "liveInstances=" + liveInstances + ", outstandingResultArrays=" + outstandingResultArrays
+				+ ", bytesHeld=" + bytesHeld + ", leakedReaders=" + leakedReaders;
+	}
+}
@@ -0,0 +1,73 @@
+package com.dynamsoft.barcode;
+
+/**
+ * A rectangular region of interest, matching DBR's {@code RegionDefinition}. Bounds are inclusive and
+ * measured in pixels, or in percent of the image size when {@link #isMeasuredByPercentage()} is set.
+ */
+public final class RegionDefinition {
+
+	private final int left;
+	private final int top;
+	private final int right;
+	private final int bottom;
+	private final boolean measuredByPercentage;
+
+	public RegionDefinition(int left, int top, int right, int bottom, boolean measuredByPercentage) {
+		if (left < 0 || top < 0 || right < left || bottom < top
+				|| measuredByPercentage && (right > 100 || bottom > 100)) {
+			throw new IllegalArgumentException(
+					"Invalid region [" + left + ", " + top + ", " + right + ", " + bottom + "]");
+		}
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+		this.measuredByPercentage = measuredByPercentage;
+	}
+
+	/**
+	 * Creates a region in pixels from its top-left corner and size.
+	 */
+	public static RegionDefinition of(int x, int y, int width, int height) {
+		return new RegionDefinition(x, y, x + width - 1, y + height - 1, false);
+	}
+
+	/**
+	 * Creates a region in percent of the image width and height.
+	 */
+	public static RegionDefinition percentage(int left, int top, int right, int bottom) {
+		return new RegionDefinition(left, top, right, bottom, true);
+	}
+
+	public int getLeft() {
+		return left;
+	}
+
+	public int getTop() {
+		return top;
+	}
+
+	public int getRight() {
+		return right;
+	}
+
+	public int getBottom() {
+		return bottom;
+	}
+
+	public boolean isMeasuredByPercentage() {
+		return measuredByPercentage;
+	}
+
+	/**
+	 * Returns the region in the order used by {@code PublicRuntimeSettings.region}.
+	 */
+	int[] toArray() {
+		return new int[] { top, left, right, bottom, measuredByPercentage ? 1 : 0 };
+	}
+
+	@Override
+	public String toString() {
+		return "[" + left + ", " + top + ", " + right + ", " + bottom + (measuredByPercentage ? "%]" : "]");
+	}
+}
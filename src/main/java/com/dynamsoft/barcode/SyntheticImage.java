@@ -0,0 +1,68 @@
+package com.dynamsoft.barcode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A small generated grayscale image used to warm up the decode path. It holds a block of bars and a
+ * checkerboard, so localization and binarization have work to do, but no barcode.
+ */
+final class SyntheticImage {
+
+	static final int WIDTH = 640;
+	static final int HEIGHT = 480;
+
+	private SyntheticImage() {
+	}
+
+	/**
+	 * Returns the image as 8-bit grayscale pixels with a stride of {@link #WIDTH}.
+	 */
+	static byte[] pixels() {
+		byte[] pixels = new byte[WIDTH * HEIGHT];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				boolean dark;
+				if (y >= 80 && y < 200 && x >= 80 && x < 560) {
+					dark = (x / 3) % 3 != 0;
+				} else if (y >= 280 && y < 400 && x >= 240 && x < 400) {
+					dark = ((x / 8) + (y / 8)) % 2 == 0;
+				} else {
+					dark = false;
+				}
+				pixels[y * WIDTH + x] = dark ? 0 : (byte) 0xff;
+			}
+		}
+		return pixels;
+	}
+
+	static ByteBuffer directPixels() {
+		byte[] pixels = pixels();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(pixels.length);
+		buffer.put(pixels).flip();
+		return buffer;
+	}
+
+	/**
+	 * Returns the image encoded as an 8-bit palettized BMP, for the encoded-image decode path.
+	 */
+	static byte[] bmp() {
+		byte[] pixels = pixels();
+		int paletteSize = 256 * 4;
+		int dataOffset = 14 + 40 + paletteSize;
+		ByteBuffer bmp = ByteBuffer.allocate(dataOffset + pixels.length).order(ByteOrder.LITTLE_ENDIAN);
+
+		// BITMAPFILEHEADER
+		bmp.put((byte) 'B').put((byte) 'M').putInt(bmp.capacity()).putInt(0).putInt(dataOffset);
+		// BITMAPINFOHEADER; rows are stored bottom-up and WIDTH is already a multiple of 4
+		bmp.putInt(40).putInt(WIDTH).putInt(HEIGHT).putShort((short) 1).putShort((short) 8).putInt(0)
+				.putInt(pixels.length).putInt(2835).putInt(2835).putInt(256).putInt(0);
+		for (int i = 0; i < 256; i++) {
+			bmp.put((byte) i).put((byte) i).put((byte) i).put((byte) 0);
+		}
+		for (int y = HEIGHT - 1; y >= 0; y--) {
+			bmp.put(pixels, y * WIDTH, WIDTH);
+		}
+		return bmp.array();
+	}
+}
@@ -0,0 +1,108 @@
+package com.dynamsoft.barcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A named set of DBR parameter templates shared by many readers.
+ * 
+ * Templates are JSON strings as accepted by {@code DBR_InitRuntimeSettingsWithString}; each one may
+ * define one or more named templates. Readers attached with
+ * {@link NativeBarcodeReader#setTemplateRegistry(TemplateRegistry)} (or through
+ * {@link NativeBarcodeReaderPool#setTemplateRegistry(TemplateRegistry)}) load the whole set once and
+ * then select a template per call by name, for example {@code reader.decodeFile(file, "BestSpeed")}.
+ * 
+ * {@link #replaceAll(Collection)} swaps the complete set atomically while readers keep decoding: every
+ * decode runs against either the old or the new set, never a mix. New templates are validated on a
+ * scratch reader before they are published, so a bad template never reaches live readers.
+ */
+public class TemplateRegistry {
+
+	private volatile Snapshot current = new Snapshot(0, Collections.<String> emptyList(),
+			Collections.<String> emptySet());
+
+	public TemplateRegistry() {
+	}
+
+	public TemplateRegistry(String... contents) throws BarcodeReaderException {
+		replaceAll(Arrays.asList(contents));
+	}
+
+	/**
+	 * Adds a template string to the current set and publishes the result as a new version.
+	 * 
+	 * @return the names of the templates defined by {@code content}
+	 */
+	public synchronized Set<String> register(String content) throws BarcodeReaderException {
+		List<String> contents = new ArrayList<>(current.contents);
+		contents.add(content);
+		Set<String> before = current.names;
+		publish(contents);
+		Set<String> added = new LinkedHashSet<>(current.names);
+		added.removeAll(before);
+		return added;
+	}
+
+	/**
+	 * Atomically replaces the whole template set.
+	 * 
+	 * @throws BarcodeReaderException if any template fails to load; the current set is left unchanged
+	 */
+	public synchronized void replaceAll(Collection<String> contents) throws BarcodeReaderException {
+		publish(new ArrayList<>(contents));
+	}
+
+	public Set<String> getTemplateNames() {
+		return current.names;
+	}
+
+	public boolean contains(String templateName) {
+		return current.names.contains(templateName);
+	}
+
+	/**
+	 * Returns a number that increases every time the template set changes.
+	 */
+	public long getVersion() {
+		return current.version;
+	}
+
+	Snapshot snapshot() {
+		return current;
+	}
+
+	private void publish(List<String> contents) throws BarcodeReaderException {
+		Set<String> names;
+		try (NativeBarcodeReader scratch = new NativeBarcodeReader()) {
+			scratch.loadTemplates(contents);
+			names = new LinkedHashSet<>(Arrays.asList(scratch.getParameterTemplateNames()));
+		}
+		current = new Snapshot(current.version + 1, Collections.unmodifiableList(contents),
+				Collections.unmodifiableSet(names));
+	}
+
+	/**
+	 * An immutable version of the template set. Readers compare snapshots by identity to detect swaps.
+	 */
+	static final class Snapshot {
+
+		private final long version;
+		private final List<String> contents;
+		private final Set<String> names;
+
+		Snapshot(long version, List<String> contents, Set<String> names) {
+			this.version = version;
+			this.contents = contents;
+			this.names = names;
+		}
+
+		List<String> getContents() {
+			return contents;
+		}
+	}
+}
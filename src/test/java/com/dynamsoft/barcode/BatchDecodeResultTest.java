@@ -0,0 +1,65 @@
+package com.dynamsoft.barcode;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class BatchDecodeResultTest {
+
+	private static BarcodeResult result(String text) {
+		return new BarcodeResult(text, text.getBytes(), "QR_CODE", 0, 0, 1, 0, 1, 1, 0, 1);
+	}
+
+	private final BarcodeResult a = result("a");
+	private final BarcodeResult b = result("b");
+	private final BarcodeResult c = result("c");
+
+	// Image 0 found a, image 1 failed, image 2 found b and c, image 3 found nothing
+	private final BatchDecodeResult batch = new BatchDecodeResult(new BarcodeResult[] { a, b, c },
+			new int[] { 0, 1, 1, 3, 3 }, new int[] { 0, -10001, 0, 0 });
+
+	@Test
+	void countsFollowOffsets() {
+		assertEquals(4, batch.size());
+		assertEquals(3, batch.getTotalResultCount());
+		assertEquals(1, batch.getResultCount(0));
+		assertEquals(0, batch.getResultCount(1));
+		assertEquals(2, batch.getResultCount(2));
+		assertEquals(0, batch.getResultCount(3));
+	}
+
+	@Test
+	void resultsAreSlicedPerImage() {
+		assertArrayEquals(new BarcodeResult[] { a }, batch.getResults(0));
+		assertArrayEquals(new BarcodeResult[] { b, c }, batch.getResults(2));
+		assertEquals(0, batch.getResults(1).length);
+		assertEquals(0, batch.getResults(3).length);
+		assertSame(c, batch.getResult(2, 1));
+		assertArrayEquals(new BarcodeResult[] { a, b, c }, batch.getAllResults());
+	}
+
+	@Test
+	void errorCodesArePerImage() {
+		assertEquals(0, batch.getErrorCode(0));
+		assertEquals(-10001, batch.getErrorCode(1));
+		assertEquals(0, batch.getErrorCode(2));
+	}
+
+	@Test
+	void resultIndexIsCheckedAgainstTheImage() {
+		assertThrows(IndexOutOfBoundsException.class, () -> batch.getResult(0, 1));
+		assertThrows(IndexOutOfBoundsException.class, () -> batch.getResult(1, 0));
+		assertThrows(IndexOutOfBoundsException.class, () -> batch.getResult(2, -1));
+	}
+
+	@Test
+	void returnedArraysAreCopies() {
+		batch.getAllResults()[0] = null;
+		batch.getResults(2)[0] = null;
+		assertSame(a, batch.getResult(0, 0));
+		assertSame(b, batch.getResult(2, 0));
+	}
+}
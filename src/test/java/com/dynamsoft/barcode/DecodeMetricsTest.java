@@ -0,0 +1,75 @@
+package com.dynamsoft.barcode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class DecodeMetricsTest {
+
+	private static final long MILLIS = 1_000_000L;
+
+	private static List<String> lines(DecodeMetrics metrics) {
+		return Arrays.asList(metrics.toPrometheusText().split("\n"));
+	}
+
+	@Test
+	void histogramBucketsAreCumulative() {
+		DecodeMetrics metrics = new DecodeMetrics();
+		metrics.record("orders", 3 * MILLIS, 2, 100);
+		metrics.record("orders", 40 * MILLIS, 0, 50);
+		metrics.recordError("orders", 20 * 1000 * MILLIS, -10001, 0);
+
+		List<String> lines = lines(metrics);
+		assertTrue(lines.contains("# TYPE dbr_decode_duration_seconds histogram"));
+		assertTrue(lines.contains("dbr_decode_duration_seconds_bucket{template=\"orders\",le=\"0.0025\"} 0"));
+		assertTrue(lines.contains("dbr_decode_duration_seconds_bucket{template=\"orders\",le=\"0.005\"} 1"));
+		assertTrue(lines.contains("dbr_decode_duration_seconds_bucket{template=\"orders\",le=\"0.05\"} 2"));
+		assertTrue(lines.contains("dbr_decode_duration_seconds_bucket{template=\"orders\",le=\"10.0\"} 2"));
+		assertTrue(lines.contains("dbr_decode_duration_seconds_bucket{template=\"orders\",le=\"+Inf\"} 3"));
+		assertTrue(lines.contains("dbr_decode_duration_seconds_sum{template=\"orders\"} 20.043"));
+		assertTrue(lines.contains("dbr_decode_duration_seconds_count{template=\"orders\"} 3"));
+	}
+
+	@Test
+	void countersArePerTemplate() {
+		DecodeMetrics metrics = new DecodeMetrics();
+		metrics.record("orders", MILLIS, 2, 100);
+		metrics.record("orders", MILLIS, 0, 50);
+		metrics.record(null, MILLIS, 1, 10);
+		metrics.recordError("orders", MILLIS, -10001, 0);
+		metrics.recordError("orders", MILLIS, -10001, 0);
+
+		List<String> lines = lines(metrics);
+		assertTrue(lines.contains("dbr_decode_barcodes_total{template=\"orders\"} 2"));
+		assertTrue(lines.contains("dbr_decode_barcodes_total{template=\"\"} 1"));
+		assertTrue(lines.contains("dbr_decode_empty_total{template=\"orders\"} 1"));
+		assertTrue(lines.contains("dbr_decode_bytes_total{template=\"orders\"} 150"));
+		assertTrue(lines.contains("dbr_decode_errors_total{template=\"orders\",code=\"-10001\"} 2"));
+		assertEquals(5, metrics.getDecodeCount());
+		assertEquals(2, metrics.getErrorCount());
+	}
+
+	@Test
+	void labelValuesAreEscaped() {
+		DecodeMetrics metrics = new DecodeMetrics();
+		metrics.record("a\"b\\c\nd", MILLIS, 1, 0);
+
+		assertTrue(lines(metrics).contains("dbr_decode_barcodes_total{template=\"a\\\"b\\\\c\\nd\"} 1"));
+	}
+
+	@Test
+	void resetStartsFromZero() {
+		DecodeMetrics metrics = new DecodeMetrics();
+		metrics.record("orders", MILLIS, 1, 10);
+		metrics.reset();
+
+		assertEquals(0, metrics.getDecodeCount());
+		assertTrue(lines(metrics).stream().allMatch(line -> line.startsWith("#")));
+		metrics.record("orders", MILLIS, 1, 10);
+		assertEquals(1, metrics.getDecodeCount());
+	}
+}
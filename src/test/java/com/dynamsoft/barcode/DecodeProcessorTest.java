@@ -0,0 +1,249 @@
+package com.dynamsoft.barcode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Test;
+
+class DecodeProcessorTest {
+
+	private static final int MAX_IN_FLIGHT = 3;
+
+	/** Decodes run when the test completes them, in any order, without natives. */
+	private final List<DecodeTask> tasks = new ArrayList<DecodeTask>();
+	private final List<CompletableFuture<BarcodeResult[]>> futures = new ArrayList<CompletableFuture<BarcodeResult[]>>();
+
+	private final Upstream upstream = new Upstream();
+	private final Downstream downstream = new Downstream();
+
+	// An image of -1 fails its decode; any other is found as its own text
+	private final DecodeProcessor<Integer> processor = new DecodeProcessor<Integer>(task -> {
+		CompletableFuture<BarcodeResult[]> future = new CompletableFuture<BarcodeResult[]>();
+		tasks.add(task);
+		futures.add(future);
+		return future;
+	}, (reader, image) -> {
+		if (image < 0) {
+			throw new BarcodeReaderException(-10001, "failed");
+		}
+		String text = String.valueOf(image);
+		return new BarcodeResult[] { new BarcodeResult(text, text.getBytes(), "QR_CODE", 0, 0, 1, 0, 1, 1, 0, 1) };
+	}, MAX_IN_FLIGHT);
+
+	private void finishDecode(int index) {
+		try {
+			futures.get(index).complete(tasks.get(index).decode(null));
+		} catch (BarcodeReaderException e) {
+			futures.get(index).completeExceptionally(e);
+		}
+	}
+
+	private void connect() {
+		processor.subscribe(downstream);
+		processor.onSubscribe(upstream);
+	}
+
+	/** Publishes the next images upstream has asked for. */
+	private void publishRequested() {
+		while (upstream.published < upstream.requested && !upstream.cancelled) {
+			processor.onNext(upstream.published++);
+		}
+	}
+
+	@Test
+	void upstreamDemandNeverExceedsMaxInFlight() {
+		connect();
+		assertEquals(MAX_IN_FLIGHT, upstream.requested);
+
+		Random random = new Random(7);
+		int finished = 0;
+		for (int step = 0; step < 200; step++) {
+			publishRequested();
+			switch (random.nextInt(3)) {
+			case 0:
+				if (finished < futures.size()) {
+					// Decodes complete out of order
+					int index = finished + random.nextInt(futures.size() - finished);
+					finishDecode(index);
+					futures.add(finished, futures.remove(index));
+					tasks.add(finished, tasks.remove(index));
+					finished++;
+				}
+				break;
+			case 1:
+				downstream.subscription.request(1 + random.nextInt(2));
+				break;
+			default:
+				break;
+			}
+			assertTrue(upstream.requested - downstream.results.size() <= MAX_IN_FLIGHT,
+					"requested " + upstream.requested + ", delivered " + downstream.results.size());
+		}
+		assertTrue(downstream.results.size() > MAX_IN_FLIGHT);
+	}
+
+	@Test
+	void completionWaitsForEveryImage() {
+		connect();
+		publishRequested();
+		processor.onComplete();
+		downstream.subscription.request(Long.MAX_VALUE);
+		assertFalse(downstream.completed);
+
+		finishDecode(2);
+		finishDecode(0);
+		assertEquals(2, downstream.results.size());
+		assertFalse(downstream.completed);
+
+		finishDecode(1);
+		assertEquals(3, downstream.results.size());
+		assertTrue(downstream.completed);
+		assertNull(downstream.error);
+	}
+
+	@Test
+	void completionWaitsForDownstreamDemand() {
+		connect();
+		publishRequested();
+		for (int i = 0; i < futures.size(); i++) {
+			finishDecode(i);
+		}
+		processor.onComplete();
+		assertFalse(downstream.completed);
+
+		downstream.subscription.request(2);
+		assertEquals(2, downstream.results.size());
+		assertFalse(downstream.completed);
+
+		downstream.subscription.request(1);
+		assertEquals(3, downstream.results.size());
+		assertTrue(downstream.completed);
+	}
+
+	@Test
+	void upstreamErrorFollowsTheDrainedResults() {
+		connect();
+		publishRequested();
+		IllegalStateException failure = new IllegalStateException("spool failed");
+		processor.onError(failure);
+		downstream.subscription.request(Long.MAX_VALUE);
+		finishDecode(0);
+		finishDecode(1);
+		assertNull(downstream.error);
+
+		finishDecode(2);
+		assertEquals(3, downstream.results.size());
+		assertSame(failure, downstream.error);
+		assertFalse(downstream.completed);
+	}
+
+	@Test
+	void failedDecodeIsPublishedWithoutEndingTheStream() {
+		connect();
+		downstream.subscription.request(Long.MAX_VALUE);
+		processor.onNext(-1);
+		processor.onNext(4);
+		finishDecode(0);
+		finishDecode(1);
+
+		DecodeProcessor.Result<Integer> failed = downstream.results.get(0);
+		assertFalse(failed.isSuccess());
+		assertNull(failed.getResults());
+		assertInstanceOf(BarcodeReaderException.class, failed.getError());
+		assertEquals("4", downstream.results.get(1).getResults()[0].getText());
+		assertNull(downstream.error);
+		assertFalse(downstream.completed);
+	}
+
+	@Test
+	void secondSubscriberIsRejected() {
+		connect();
+		Downstream second = new Downstream();
+		processor.subscribe(second);
+		assertInstanceOf(IllegalStateException.class, second.error);
+
+		downstream.subscription.request(1);
+		publishRequested();
+		finishDecode(0);
+		assertEquals(1, downstream.results.size());
+		assertTrue(second.results.isEmpty());
+	}
+
+	@Test
+	void cancelStopsUpstreamAndDelivery() {
+		connect();
+		publishRequested();
+		downstream.subscription.request(Long.MAX_VALUE);
+		downstream.subscription.cancel();
+		assertTrue(upstream.cancelled);
+
+		finishDecode(0);
+		processor.onComplete();
+		assertTrue(downstream.results.isEmpty());
+		assertFalse(downstream.completed);
+		assertNull(downstream.error);
+	}
+
+	@Test
+	void nonPositiveRequestIsAnError() {
+		connect();
+		downstream.subscription.request(0);
+		assertInstanceOf(IllegalArgumentException.class, downstream.error);
+		assertTrue(upstream.cancelled);
+	}
+
+	private static final class Upstream implements Flow.Subscription {
+
+		long requested;
+		int published;
+		boolean cancelled;
+
+		@Override
+		public void request(long n) {
+			requested += n;
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+
+	private static final class Downstream implements Flow.Subscriber<DecodeProcessor.Result<Integer>> {
+
+		final List<DecodeProcessor.Result<Integer>> results = new ArrayList<DecodeProcessor.Result<Integer>>();
+		Flow.Subscription subscription;
+		Throwable error;
+		boolean completed;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(DecodeProcessor.Result<Integer> item) {
+			results.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package com.dynamsoft.barcode;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class DecodeResultCacheTest {
+
+	private static final String FOX = "The quick brown fox jumps over the lazy dog";
+
+	private static final BarcodeResult[] ONE = { new BarcodeResult("a", "a".getBytes(), "QR_CODE", 0, 0, 1, 0, 1, 1,
+			0, 1) };
+
+	private static DecodeResultCache.Key key(long hash) {
+		return new DecodeResultCache.Key(hash, 0, 1, "", 0);
+	}
+
+	/** A decoder that counts its calls and returns a fresh copy of {@link #ONE}. */
+	private static final class CountingDecode implements DecodeResultCache.CachedDecode {
+
+		final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public BarcodeResult[] decode() {
+			calls.incrementAndGet();
+			return ONE.clone();
+		}
+	}
+
+	private static long[] hash(String text, long seed) {
+		return hash(text.getBytes(StandardCharsets.US_ASCII), seed);
+	}
+
+	private static long[] hash(byte[] data, long seed) {
+		return DecodeResultCache.murmur3(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), seed);
+	}
+
+	// Reference values from the MurmurHash3_x64_128 C implementation
+	@Test
+	void matchesReferenceImplementation() {
+		assertArrayEquals(new long[] { 0, 0 }, hash("", 0));
+		assertArrayEquals(new long[] { 0xf02aa77dfa1b8523L, 0xd1016610da11cbb9L }, hash("", 42));
+		assertArrayEquals(new long[] { 0xcbd8a7b341bd9b02L, 0x5b1e906a48ae1d19L }, hash("hello", 0));
+		assertArrayEquals(new long[] { 0xc4b8b3c960af6f08L, 0x2334b875b0efbc7aL }, hash("hello", 42));
+		assertArrayEquals(new long[] { 0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L }, hash(FOX, 0));
+		assertArrayEquals(new long[] { 0x740dcf93fe0bd5d7L, 0xc4546cf4ec705c8fL }, hash(FOX, 42));
+	}
+
+	@Test
+	void hashesOnlyTheRemainingBytes() {
+		byte[] fox = FOX.getBytes(StandardCharsets.US_ASCII);
+		ByteBuffer direct = ByteBuffer.allocateDirect(fox.length + 7).order(ByteOrder.LITTLE_ENDIAN);
+		direct.position(3);
+		direct.put(fox).flip().position(3);
+
+		assertArrayEquals(hash(fox, 0), DecodeResultCache.murmur3(direct, 0));
+		assertEquals(0, direct.remaining());
+	}
+
+	@Test
+	void everyTailLengthChangesTheHash() {
+		byte[] data = new byte[32];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 7 + 1);
+		}
+		for (int length = 1; length <= data.length; length++) {
+			byte[] prefix = Arrays.copyOf(data, length);
+			byte[] changed = prefix.clone();
+			changed[length - 1] ^= 1;
+			long[] a = hash(prefix, 0);
+			long[] b = hash(changed, 0);
+			assertFalse(a[0] == b[0] && a[1] == b[1], "length " + length);
+		}
+	}
+
+	@Test
+	void secondLookupIsAHit() throws BarcodeReaderException {
+		DecodeResultCache cache = new DecodeResultCache(4);
+		CountingDecode decoder = new CountingDecode();
+
+		BarcodeResult[] first = cache.getOrDecode(key(1), decoder);
+		BarcodeResult[] second = cache.getOrDecode(key(1), decoder);
+
+		assertEquals(1, decoder.calls.get());
+		assertArrayEquals(first, second);
+		assertNotSame(first, second);
+		DecodeResultCache.Stats stats = cache.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(0, stats.getEvictions());
+		assertEquals(1, stats.getSize());
+	}
+
+	@Test
+	void keysDifferBySettingsAndTemplate() throws BarcodeReaderException {
+		DecodeResultCache cache = new DecodeResultCache(4);
+		CountingDecode decoder = new CountingDecode();
+
+		cache.getOrDecode(new DecodeResultCache.Key(1, 2, 3, "", 0), decoder);
+		cache.getOrDecode(new DecodeResultCache.Key(1, 2, 3, "", 7), decoder);
+		cache.getOrDecode(new DecodeResultCache.Key(1, 2, 3, "Balance", 0), decoder);
+		cache.getOrDecode(new DecodeResultCache.Key(1, 2, 3, "", 7), decoder);
+
+		assertEquals(3, decoder.calls.get());
+		assertEquals(1, cache.getStats().getHits());
+	}
+
+	@Test
+	void leastRecentlyUsedEntryIsEvicted() throws BarcodeReaderException {
+		DecodeResultCache cache = new DecodeResultCache(2);
+		CountingDecode decoder = new CountingDecode();
+
+		cache.getOrDecode(key(1), decoder);
+		cache.getOrDecode(key(2), decoder);
+		// Touch 1, so 2 is now the eldest
+		cache.getOrDecode(key(1), decoder);
+		cache.getOrDecode(key(3), decoder);
+		assertEquals(3, decoder.calls.get());
+		assertEquals(1, cache.getStats().getEvictions());
+
+		cache.getOrDecode(key(1), decoder);
+		cache.getOrDecode(key(3), decoder);
+		assertEquals(3, decoder.calls.get());
+		cache.getOrDecode(key(2), decoder);
+		assertEquals(4, decoder.calls.get());
+
+		DecodeResultCache.Stats stats = cache.getStats();
+		assertEquals(3, stats.getHits());
+		assertEquals(4, stats.getMisses());
+		assertEquals(2, stats.getEvictions());
+		assertEquals(2, stats.getSize());
+		assertEquals(2, stats.getMaxEntries());
+	}
+
+	@Test
+	void failuresAreNotCached() throws BarcodeReaderException {
+		DecodeResultCache cache = new DecodeResultCache(2);
+		assertThrows(BarcodeReaderException.class, () -> cache.getOrDecode(key(1), () -> {
+			throw new BarcodeReaderException(-10001, "failed");
+		}));
+		assertNull(cache.getOrDecode(key(1), () -> null));
+
+		CountingDecode decoder = new CountingDecode();
+		cache.getOrDecode(key(1), decoder);
+		assertEquals(1, decoder.calls.get());
+		assertEquals(0, cache.getStats().getHits());
+		assertEquals(3, cache.getStats().getMisses());
+	}
+
+	@Test
+	void concurrentMissesDecodeOnce() throws Exception {
+		DecodeResultCache cache = new DecodeResultCache(2);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		DecodeResultCache.CachedDecode slow = () -> {
+			calls.incrementAndGet();
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return ONE.clone();
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<BarcodeResult[]> leader = executor.submit(() -> cache.getOrDecode(key(1), slow));
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			Future<BarcodeResult[]> follower = executor.submit(() -> cache.getOrDecode(key(1), slow));
+			// The follower is now waiting for the leader or has not reached the cache yet; either way it
+			// must not decode
+			Thread.sleep(50);
+			release.countDown();
+
+			assertArrayEquals(ONE, leader.get(10, TimeUnit.SECONDS));
+			assertArrayEquals(ONE, follower.get(10, TimeUnit.SECONDS));
+			assertEquals(1, calls.get());
+			assertEquals(1, cache.getStats().getHits());
+			assertEquals(1, cache.getStats().getMisses());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.dynamsoft.barcode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class LuminanceConverterTest {
+
+	// (77 * 255 + 128) >> 8 and (29 * 255 + 128) >> 8
+	private static final int RED = 77;
+	private static final int BLUE = 29;
+
+	private static final byte F = (byte) 0xff;
+
+	private static int[] gray(byte[] pixels, int pixelFormat, int width) {
+		ByteBuffer dst = LuminanceConverter.allocate(width, 1);
+		LuminanceConverter.toGray(pixels, 0, pixels.length, pixelFormat, width, 1, dst, width);
+		return toInts(dst, width);
+	}
+
+	private static int[] grayDirect(byte[] pixels, int pixelFormat, int width) {
+		ByteBuffer src = ByteBuffer.allocateDirect(pixels.length);
+		src.put(pixels).flip();
+		ByteBuffer dst = LuminanceConverter.allocate(width, 1);
+		LuminanceConverter.toGray(src, pixels.length, pixelFormat, width, 1, dst, width);
+		return toInts(dst, width);
+	}
+
+	private static int[] toInts(ByteBuffer gray, int width) {
+		int[] values = new int[width];
+		for (int x = 0; x < width; x++) {
+			values[x] = gray.get(x) & 0xff;
+		}
+		return values;
+	}
+
+	private static void assertRedBlue(int[] values) {
+		assertEquals(RED, values[0], "red");
+		assertEquals(BLUE, values[1], "blue");
+	}
+
+	@Test
+	void rgb888IsStoredBlueFirst() {
+		byte[] pixels = { 0, 0, F, F, 0, 0 };
+		assertRedBlue(gray(pixels, EnumImagePixelFormat.IPF_RGB_888, 2));
+		assertRedBlue(grayDirect(pixels, EnumImagePixelFormat.IPF_RGB_888, 2));
+	}
+
+	@Test
+	void bgr888IsStoredRedFirst() {
+		byte[] pixels = { F, 0, 0, 0, 0, F };
+		assertRedBlue(gray(pixels, EnumImagePixelFormat.IPF_BGR_888, 2));
+		assertRedBlue(grayDirect(pixels, EnumImagePixelFormat.IPF_BGR_888, 2));
+	}
+
+	@Test
+	void argb8888IsStoredBlueFirst() {
+		byte[] pixels = { 0, 0, F, F, F, 0, 0, F };
+		assertRedBlue(gray(pixels, EnumImagePixelFormat.IPF_ARGB_8888, 2));
+		assertRedBlue(grayDirect(pixels, EnumImagePixelFormat.IPF_ARGB_8888, 2));
+	}
+
+	@Test
+	void abgr8888IsStoredRedFirst() {
+		byte[] pixels = { F, 0, 0, F, 0, 0, F, F };
+		assertRedBlue(gray(pixels, EnumImagePixelFormat.IPF_ABGR_8888, 2));
+		assertRedBlue(grayDirect(pixels, EnumImagePixelFormat.IPF_ABGR_8888, 2));
+	}
+
+	@Test
+	void packedIntsIgnoreAlpha() {
+		ByteBuffer dst = LuminanceConverter.allocate(3, 1);
+		LuminanceConverter.toGray(new int[] { 0xffff0000, 0x000000ff, 0xffffffff }, 0, 3, 3, 1, dst, 3);
+		assertEquals(RED, dst.get(0) & 0xff);
+		assertEquals(BLUE, dst.get(1) & 0xff);
+		assertEquals(255, dst.get(2) & 0xff);
+	}
+
+	@Test
+	void stridesAndPositionsAreHonoured() {
+		// Two rows of one BGR-ordered pixel each, padded to a stride of 4
+		ByteBuffer src = ByteBuffer.allocateDirect(9);
+		src.put(new byte[] { 9, 0, 0, F, 7, 0, 0, F, 0 }).position(1);
+		ByteBuffer dst = ByteBuffer.allocateDirect(5);
+		dst.position(1);
+		LuminanceConverter.toGray(src, 4, EnumImagePixelFormat.IPF_RGB_888, 1, 2, dst, 2);
+
+		assertEquals(1, src.position());
+		assertEquals(1, dst.position());
+		assertEquals(RED, dst.get(1) & 0xff);
+		assertEquals(0, dst.get(2));
+		assertEquals(RED, dst.get(3) & 0xff);
+	}
+
+	@Test
+	void rejectsShortInput() {
+		ByteBuffer dst = LuminanceConverter.allocate(2, 2);
+		assertThrows(IndexOutOfBoundsException.class, () -> LuminanceConverter.toGray(new byte[11], 0, 6,
+				EnumImagePixelFormat.IPF_RGB_888, 2, 2, dst, 2));
+		assertThrows(IllegalArgumentException.class, () -> LuminanceConverter.toGray(new byte[16], 0, 8,
+				EnumImagePixelFormat.IPF_GRAYSCALED, 2, 2, dst, 2));
+	}
+}
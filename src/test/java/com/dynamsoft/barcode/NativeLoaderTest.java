@@ -0,0 +1,62 @@
+package com.dynamsoft.barcode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NativeLoaderTest {
+
+	@TempDir
+	Path dir;
+
+	private String write(String name, String content) throws IOException {
+		return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.US_ASCII)).toString();
+	}
+
+	@Test
+	void pdfIsRecognisedByItsSignature() throws IOException {
+		assertTrue(NativeLoader.isPdf(write("scan", "%PDF-1.7\n")));
+		assertTrue(NativeLoader.isPdf(write("scan.bin", "%PDF")));
+	}
+
+	@Test
+	void extensionAloneIsNotEnough() throws IOException {
+		assertFalse(NativeLoader.isPdf(write("image.pdf", "\u0089PNG\r\n")));
+		assertFalse(NativeLoader.isPdf(write("short.pdf", "%PD")));
+		assertFalse(NativeLoader.isPdf(dir.resolve("missing.pdf").toString()));
+		assertFalse(NativeLoader.isPdf((String) null));
+	}
+
+	@Test
+	void extractionDirectoryIsCreatedPrivate() throws IOException {
+		assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+		Path extraction = dir.resolve("extract");
+		assertTrue(NativeLoader.isPrivateDirectory(extraction));
+		assertTrue(NativeLoader.isPrivateDirectory(extraction));
+		assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(extraction)));
+	}
+
+	@Test
+	void sharedOrLinkedDirectoryIsNotTrusted() throws IOException {
+		assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+		Path shared = Files.createDirectory(dir.resolve("shared"));
+		Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rwxrwxrwx"));
+		assertFalse(NativeLoader.isPrivateDirectory(shared));
+
+		Path target = Files.createDirectory(dir.resolve("target"),
+				PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		Path link = Files.createSymbolicLink(dir.resolve("link"), target);
+		assertFalse(NativeLoader.isPrivateDirectory(link));
+		assertFalse(NativeLoader.isPrivateDirectory(Files.createFile(dir.resolve("file"))));
+	}
+}